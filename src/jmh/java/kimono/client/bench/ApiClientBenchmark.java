@@ -0,0 +1,117 @@
+package kimono.client.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.net.httpserver.HttpServer;
+
+import kimono.api.v2.interopdata.ApiClient;
+import kimono.client.KimonoApis;
+import kimono.client.impl.Credentials;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * One request to a local HTTP stand-in for the Interop Data API, for each of
+ * a number of tenants in turn: {@code built} constructs a new client for every
+ * request as every request did before clients were cached, so each request
+ * opens a new connection; {@code cached} gets the tenant's client from the
+ * {@link KimonoApis} client cache, so requests reuse the shared connection
+ * pool
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiClientBenchmark {
+
+	@Param({ "1", "100" })
+	public int tenants;
+
+	private HttpServer server;
+
+	private String url;
+
+	private Credentials[] creds;
+
+	private int next;
+
+	@Setup
+	public void setup() throws IOException {
+		byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/tasks";
+
+		creds = new Credentials[tenants];
+		for (int i = 0; i < tenants; i++) {
+			creds[i] = new Credentials(Credentials.Type.ACTOR, Credentials.Proto.BASIC, "client-" + i, "secret-" + i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		KimonoApis.clearClientCache();
+		server.stop(0);
+	}
+
+	private Credentials nextCredentials() {
+		Credentials cred = creds[next];
+		next = (next + 1) % creds.length;
+		return cred;
+	}
+
+	private int request(ApiClient client) throws IOException {
+		try (Response response = client.getHttpClient().newCall(new Request.Builder().url(url).build()).execute()) {
+			return response.body().bytes().length;
+		}
+	}
+
+	@Benchmark
+	public int built() throws IOException {
+		Credentials cred = nextCredentials();
+		ApiClient client = new ApiClient();
+		client.setUsername(cred.getUsername());
+		client.setPassword(cred.getPassword());
+		client.setReadTimeout(30000);
+		client.setConnectTimeout(30000);
+		try {
+			return request(client);
+		} finally {
+			// The client is discarded, and its connection with it
+			client.getHttpClient().connectionPool().evictAll();
+		}
+	}
+
+	@Benchmark
+	public int cached() throws IOException {
+		return request(KimonoApis.getInteropDataClient(nextCredentials()));
+	}
+}
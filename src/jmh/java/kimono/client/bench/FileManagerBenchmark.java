@@ -0,0 +1,116 @@
+package kimono.client.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kimono.api.v2.interop.model.TenantInfo;
+import kimono.client.KCTopic;
+import kimono.client.csv.KCFile;
+import kimono.client.impl.DriverProperties;
+import kimono.client.impl.Tenant;
+import kimono.client.impl.csv.AbstractFileManager;
+import kimono.client.impl.tasks.Task;
+import kimono.client.tasks.KCTask;
+
+/**
+ * The overhead {@link AbstractFileManager#write(KCTask)} adds to each row,
+ * measured with a {@link KCFile} that discards what it is given
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileManagerBenchmark {
+
+	/**
+	 * A {@link KCFile} that only counts the rows written to it
+	 */
+	private static class NullFile implements KCFile {
+		private String groupId;
+		private KCTopic topic;
+		private long rows;
+
+		private NullFile(String groupId, KCTopic topic) {
+			this.groupId = groupId;
+			this.topic = topic;
+		}
+
+		@Override
+		public String getGroupId() {
+			return groupId;
+		}
+
+		@Override
+		public KCTopic getTopic() {
+			return topic;
+		}
+
+		@Override
+		public void open() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public void write(KCTask task, JSONObject attrs) {
+			rows++;
+		}
+
+		@Override
+		public void commit() {
+		}
+	}
+
+	private File folder;
+
+	private AbstractFileManager manager;
+
+	private KCTask task;
+
+	@Setup
+	public void setup() throws IOException {
+		folder = Files.createTempDirectory("kimono-bench").toFile();
+		DriverProperties props = new DriverProperties();
+		props.setOption("output_folder", folder.getAbsolutePath());
+
+		TenantInfo ti = new TenantInfo();
+		ti.setId(UUID.randomUUID());
+		manager = new AbstractFileManager(new Tenant(ti), props) {
+		};
+		manager.setFileSupplier((groupId, topic) -> new NullFile(groupId, topic));
+
+		task = new Task(new JSONObject(Fixtures.read("tasks/task-3x.json")));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		manager.close();
+		FileUtils.deleteDirectory(folder);
+	}
+
+	@Benchmark
+	public void write() throws IOException {
+		manager.write(task);
+	}
+}
@@ -0,0 +1,31 @@
+package kimono.client.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Loads benchmark fixtures from {@code src/jmh/resources}
+ */
+public class Fixtures {
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Read a fixture
+	 * 
+	 * @param name The resource name, relative to the root of the fixtures
+	 * @return The content of the fixture
+	 */
+	public static String read(String name) throws IOException {
+		try (InputStream in = Fixtures.class.getResourceAsStream("/" + name)) {
+			if (in == null) {
+				throw new IOException("Fixture not found: " + name);
+			}
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package kimono.client.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import kimono.client.util.JsonUtils;
+
+/**
+ * The {@link JsonUtils} helpers mappers call for each row
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonUtilsBenchmark {
+
+	private JSONObject student;
+
+	@Setup
+	public void setup() throws IOException {
+		student = new JSONObject(Fixtures.read("tasks/student.json"));
+	}
+
+	@Benchmark
+	public String sys() {
+		return JsonUtils.sys(student, "id");
+	}
+
+	@Benchmark
+	public String refId() {
+		return JsonUtils.refId(student, "school");
+	}
+
+	@Benchmark
+	public String collectRefIds() {
+		return JsonUtils.collectRefIds(student, "schools");
+	}
+}
@@ -0,0 +1,103 @@
+package kimono.client.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import kimono.client.impl.tasks.Task;
+import kimono.client.impl.tasks.TaskPageDecoder;
+import kimono.client.tasks.KCTask;
+
+/**
+ * Task decoding for each supported task schema
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskBenchmark {
+
+	/**
+	 * Number of tasks on a page decoded by {@link #decodePage(Blackhole)}
+	 */
+	private static final int PAGE_SIZE = 100;
+
+	@Param({ "1x", "2x", "3x" })
+	public String schema;
+
+	private String text;
+
+	private JSONObject json;
+
+	private Task task;
+
+	private byte[] page;
+
+	@Setup
+	public void setup() throws IOException {
+		text = Fixtures.read("tasks/task-" + schema + ".json");
+		json = new JSONObject(text);
+		task = new Task(json);
+
+		StringBuilder b = new StringBuilder("{\"data\":[");
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			b.append(i == 0 ? "" : ",").append(text);
+		}
+		b.append("],\"paging\":{\"next\":null}}");
+		page = b.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a task's JSON and construct a Task
+	 */
+	@Benchmark
+	public KCTask parseAndConstruct() {
+		return new Task(new JSONObject(text));
+	}
+
+	/**
+	 * Construct a Task from JSON that has already been parsed
+	 */
+	@Benchmark
+	public KCTask construct() {
+		return new Task(json);
+	}
+
+	/**
+	 * Read the envelope fields handlers and file managers use for each row
+	 */
+	@Benchmark
+	public void getters(Blackhole bh) {
+		bh.consume(task.getId());
+		bh.consume(task.getTopic());
+		bh.consume(task.getAction());
+		bh.consume(task.getGroupId());
+		bh.consume(task.getSequence());
+		bh.consume(task.getAttributes());
+	}
+
+	/**
+	 * Decode a page of tasks from a response body
+	 */
+	@Benchmark
+	public boolean decodePage(Blackhole bh) throws IOException {
+		return TaskPageDecoder.decode(new ByteArrayInputStream(page), bh::consume);
+	}
+}
@@ -1,17 +1,176 @@
 package kimono.client;
 
+import java.io.File;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 public interface KCDriverProperties {
 	
+	/**
+	 * The default number of tokens the token store file can hold
+	 */
+	int DEFAULT_TOKEN_STORE_SLOTS = 4096;
+	
 	int getPollingInterval();
 	
 	TimeUnit getPollingIntervalTimeUnit();
 	
+	/**
+	 * Gets the shortest polling interval, in {@link #getPollingIntervalTimeUnit()}
+	 * units, when the polling interval adapts to queue activity
+	 * @return The minimum interval or -1 to always use {@link #getPollingInterval()}
+	 */
+	default int getMinPollingInterval() {
+		return -1;
+	}
+	
+	/**
+	 * Gets the maximum number of pages of Tasks to handle for each tenant in one
+	 * polling interval
+	 * @return The maximum number of pages or 0 to drain each tenant completely
+	 */
+	default int getMaxPagesPerTenant() {
+		return 0;
+	}
+	
+	/**
+	 * Gets the number of tenants to poll concurrently. Each tenant's Task queue
+	 * is drained by a single thread so Tasks are still handled in order.
+	 * @return The number of polling threads; 1 to poll tenants serially
+	 */
+	default int getPollingThreads() {
+		return 1;
+	}
+	
+	/**
+	 * Should each tenant be polled on its own virtual thread? Only honored on
+	 * Java 21 or later.
+	 */
+	default boolean isVirtualThreads() {
+		return false;
+	}
+	
+	/**
+	 * Gets the number of lanes to dispatch each tenant's Data Events on. Tasks
+	 * for the same object are always handled in order on the same lane.
+	 * @return The number of lanes; 1 to handle a tenant's Tasks serially
+	 */
+	default int getDispatchLanes() {
+		return 1;
+	}
+	
+	/**
+	 * Gets the maximum number of Task acknowledgements to send in one request
+	 * @return The batch size; 1 to acknowledge each Task individually. The
+	 * 	default is 50 when {@link #isAckBulk()} and 1 otherwise.
+	 */
+	default int getAckBatchSize() {
+		return isAckBulk() ? 50 : 1;
+	}
+	
+	/**
+	 * Gets the maximum time in milliseconds a Task acknowledgement waits in a 
+	 * batch before it is sent
+	 * @return The delay; the default is 1000 when {@link #isAckBulk()} and 0
+	 * 	otherwise
+	 */
+	default long getAckBatchDelay() {
+		return isAckBulk() ? 1000 : 0;
+	}
+	
+	/**
+	 * Gets whether each batch of Task acknowledgements is sent in a single 
+	 * request. Only honored by servers that offer bulk acknowledgement.
+	 */
+	default boolean isAckBulk() {
+		return false;
+	}
+	
+	/**
+	 * Gets the maximum number of Task acknowledgements per tenant to queue for
+	 * a background sender
+	 * @return The queue depth; 0 to send acknowledgements on the polling thread
+	 */
+	default int getAckQueueDepth() {
+		return 0;
+	}
+	
 	String getOutputFolder();
 	
+	/**
+	 * Gets where OAuth2 tokens are stored
+	 * @return "memory" (the default) to keep tokens in memory, or "file" to 
+	 * 	persist them in {@link #getTokenStoreFile()} across restarts
+	 */
+	default String getTokenStore() {
+		return "memory";
+	}
+	
+	/**
+	 * Gets the file tokens are persisted in when {@link #getTokenStore()} is
+	 * "file"
+	 */
+	default String getTokenStoreFile() {
+		return new File(getOutputFolder(), "tokens.dat").getPath();
+	}
+	
+	/**
+	 * Gets the number of tokens the token store file can hold
+	 */
+	default int getTokenStoreSlots() {
+		return DEFAULT_TOKEN_STORE_SLOTS;
+	}
+	
+	/**
+	 * Gets how long in seconds the list of tenants is cached before it is
+	 * refreshed
+	 * @return The time to live; 0 (the default) to list tenants on every
+	 * 	polling interval
+	 */
+	default long getTenantCacheTtl() {
+		return 0;
+	}
+	
+	/**
+	 * Gets whether Tasks are journaled to a durable local inbox and acknowledged
+	 * before they are handled
+	 */
+	default boolean isInbox() {
+		return false;
+	}
+	
+	/**
+	 * Gets the folder of the durable local inbox
+	 */
+	default String getInboxFolder() {
+		return new File(getOutputFolder(), "inbox").getPath();
+	}
+	
+	/**
+	 * Gets the number of completed Task IDs to remember for each tenant so 
+	 * redelivered Tasks are not handled again
+	 * @return The number of IDs; 0 (the default) to handle redelivered Tasks
+	 */
+	default int getDedupCapacity() {
+		return 0;
+	}
+	
+	/**
+	 * Gets how long in seconds a completed Task ID is remembered
+	 */
+	default long getDedupTtl() {
+		return 3600;
+	}
+	
+	/**
+	 * Gets how often in seconds measurements are logged
+	 * @return The interval; 0 (the default) to not record measurements
+	 */
+	default long getMetricsInterval() {
+		return 0;
+	}
+	
 	/**
 	 * Gets the set of account {@code id}s to process. When specified, only
 	 * tenants belonging to this set of accounts are processed by the driver.
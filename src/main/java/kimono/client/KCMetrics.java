@@ -0,0 +1,138 @@
+package kimono.client;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+
+/**
+ * Receives measurements from the polling loop, the Tasks API and File Managers.
+ * Every method has an empty default implementation so an implementation only
+ * overrides the measurements it is interested in. Methods are called from
+ * polling threads and must be thread safe and fast.
+ * <p>
+ * 
+ * Install an implementation with {@link kimono.client.impl.Metrics#setMetrics(KCMetrics)}.
+ * All latencies are in nanoseconds.
+ */
+public interface KCMetrics {
+
+	/**
+	 * A page of Tasks was fetched for a tenant
+	 * 
+	 * @param tenant The tenant
+	 * @param tasks  The number of Tasks on the page
+	 * @param nanos  The time taken to fetch and decode the page
+	 */
+	default void fetched(KCTenant tenant, int tasks, long nanos) {
+	}
+
+	/**
+	 * A Task handler returned
+	 * 
+	 * @param tenant The tenant
+	 * @param task   The Task
+	 * @param ack    The acknowledgement the handler returned
+	 * @param nanos  The time the handler took
+	 */
+	default void handled(KCTenant tenant, KCTask task, KCTaskAck ack, long nanos) {
+	}
+
+	/**
+	 * A Task that was already handled was delivered again and acknowledged
+	 * without calling its handler
+	 * 
+	 * @param tenant The tenant
+	 * @param task   The Task
+	 */
+	default void duplicate(KCTenant tenant, KCTask task) {
+	}
+
+	/**
+	 * Tasks were missing from a group's sequence when the Tasks after them were
+	 * handled
+	 * 
+	 * @param tenant  The tenant
+	 * @param groupId The group
+	 * @param missing The number of sequence numbers skipped
+	 */
+	default void sequenceGap(KCTenant tenant, String groupId, long missing) {
+	}
+
+	/**
+	 * A sequence number was delivered more than once within a group
+	 * 
+	 * @param tenant   The tenant
+	 * @param groupId  The group
+	 * @param sequence The sequence number
+	 */
+	default void sequenceDuplicate(KCTenant tenant, String groupId, long sequence) {
+	}
+
+	/**
+	 * Acknowledgements were sent for a tenant
+	 * 
+	 * @param tenant The tenant
+	 * @param count  The number of acknowledgements in the request
+	 * @param nanos  The time the request took
+	 */
+	default void acked(KCTenant tenant, int count, long nanos) {
+	}
+
+	/**
+	 * A request for a tenant was rejected with a 401 and will be retried with a
+	 * new access token
+	 * 
+	 * @param tenant The tenant
+	 */
+	default void reauthorized(KCTenant tenant) {
+	}
+
+	/**
+	 * The polling loop finished with a tenant's Task queue for this polling
+	 * interval
+	 * 
+	 * @param tenant  The tenant
+	 * @param tasks   The number of Tasks handled
+	 * @param backlog true if Tasks were left in the queue for the next interval
+	 * @param nanos   The time spent on the tenant
+	 */
+	default void polled(KCTenant tenant, int tasks, boolean backlog, long nanos) {
+	}
+
+	/**
+	 * A tenant failed repeatedly and will be skipped by the polling loop for a
+	 * while
+	 * 
+	 * @param tenant The tenant
+	 * @param nanos  How long the tenant will be skipped
+	 */
+	default void quarantined(KCTenant tenant, long nanos) {
+	}
+
+	/**
+	 * The polling loop finished one pass over all tenants
+	 * 
+	 * @param tasks The number of Tasks handled
+	 * @param nanos The time the pass took
+	 */
+	default void cycled(int tasks, long nanos) {
+	}
+
+	/**
+	 * A File Manager wrote a row
+	 * 
+	 * @param tenant The tenant
+	 * @param topic  The topic of the row
+	 * @param nanos  The time taken to map and write the row
+	 */
+	default void written(KCTenant tenant, KCTopic topic, long nanos) {
+	}
+
+	/**
+	 * A File Manager committed its files
+	 * 
+	 * @param tenant The tenant
+	 * @param nanos  The time taken to commit and archive the files
+	 */
+	default void committed(KCTenant tenant, long nanos) {
+	}
+}
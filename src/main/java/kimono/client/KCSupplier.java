@@ -1,5 +1,8 @@
 package kimono.client;
 
+import java.util.Collections;
+import java.util.List;
+
 public interface KCSupplier<T> {
 
 	/**
@@ -19,4 +22,19 @@ public interface KCSupplier<T> {
 	 * @return The next result or {@code null} if none
 	 */
 	T next();
+	
+	/**
+	 * Get the remaining results of the current page, fetching the next page
+	 * first if the current page has been consumed. The default treats each
+	 * result as a page of its own; suppliers that fetch results in pages
+	 * should override it.
+	 * @return The results or an empty list if none
+	 */
+	default List<T> nextPage() {
+		if( !hasNext() ) {
+			return Collections.emptyList();
+		}
+		T next = next();
+		return next == null ? Collections.emptyList() : Collections.singletonList(next);
+	}
 }
@@ -7,4 +7,11 @@ import kimono.api.v2.interop.model.TenantInfo;
  */
 public interface KCTenantSupplier extends KCSupplier<KCTenant> {
 
+	/**
+	 * Discard any tenants the supplier has cached, so the next {@link #reset()}
+	 * lists them again. Called when a Lifecycle Event signals that a tenant was
+	 * installed, activated or uninstalled.
+	 */
+	default void invalidate() {
+	}
 }
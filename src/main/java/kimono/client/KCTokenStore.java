@@ -12,11 +12,28 @@ public interface KCTokenStore {
 	 */
 	String getToken( UUID tenantId, KCTokenType type );
 	
+	/**
+	 * Get the time a tenant's token expires
+	 * @return The expiry time in milliseconds since the epoch, or 0 if unknown
+	 */
+	default long getTokenExpiry( UUID tenantId, KCTokenType type ) {
+		return 0;
+	}
+	
 	/**
 	 * Set a token for a tenant
 	 */
 	void setToken( UUID tenanId, KCTokenType type, String value );
 	
+	/**
+	 * Set a token for a tenant that expires at a known time. The default 
+	 * discards the expiry time.
+	 * @param expiresAt The expiry time in milliseconds since the epoch, or 0 if unknown
+	 */
+	default void setToken( UUID tenantId, KCTokenType type, String value, long expiresAt ) {
+		setToken(tenantId, type, value);
+	}
+	
 	/**
 	 * Clear a token for a tenant
 	 */
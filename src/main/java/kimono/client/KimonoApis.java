@@ -1,6 +1,16 @@
 package kimono.client;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import kimono.api.v2.broker.MessagesApi;
 import kimono.api.v2.interop.ActorsApi;
@@ -15,6 +25,8 @@ import kimono.api.v2.platform.AccountsApi;
 import kimono.api.v2.sifcloud.ClientsApi;
 import kimono.api.v2.sifcloud.ZonesApi;
 import kimono.client.impl.Credentials;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
 
 /**
  * Provides static methods to easily access all Kimono APIs using the correct
@@ -24,9 +36,169 @@ public class KimonoApis {
 
 	private static final int READ_TIMEOUT = 30000;
 
+	/**
+	 * The maximum number of ApiClients of each kind to keep
+	 * @see #setClientCacheSize(int)
+	 */
+	private static volatile int sMaxClients = 1024;
+
+	/**
+	 * Holds the connection pool and dispatcher shared by every cached ApiClient,
+	 * so requests for all tenants reuse the same keep-alive connections
+	 */
+	private static final OkHttpClient sHttpClient = new OkHttpClient.Builder()
+			.connectionPool(new ConnectionPool(64, 5, TimeUnit.MINUTES)).build();
+
+	/**
+	 * ApiClients are expensive to build so they are cached by credentials and
+	 * tenant and reused. Each is given the shared connection pool, so a socket
+	 * opened for one tenant is reused by the next. OAuth2 clients carry their
+	 * tenant's access token, so a client is never shared by two tenants even
+	 * when they have the same Client ID.
+	 */
+	private static final ClientCache<kimono.api.v2.interop.ApiClient> sInteropClients = new ClientCache<>();
+	private static final ClientCache<kimono.api.v2.interopdata.ApiClient> sInteropDataClients = new ClientCache<>();
+	private static final ClientCache<kimono.api.v2.broker.ApiClient> sBrokerClients = new ClientCache<>();
+
+	/**
+	 * The base path of the Interop Data APIs, which does not depend on the
+	 * credentials used
+	 */
+	private static final String INTEROP_DATA_BASE_PATH = new kimono.api.v2.interopdata.ApiClient().getBasePath();
+
+	/**
+	 * Identifies the credentials and tenant an ApiClient was built for. The
+	 * secret is kept only as a SHA-256 digest, so a changed secret still gets a
+	 * new client without the secret itself being held by the cache.
+	 */
+	private static final class ClientKey {
+
+		private final Credentials.Type type;
+		private final Credentials.Proto proto;
+		private final String username;
+		private final UUID tenantId;
+		private final byte[] secret;
+		private final int hash;
+
+		ClientKey(Credentials cred) {
+			type = cred.getType();
+			proto = cred.getProto();
+			username = cred.getUsername();
+			tenantId = cred.getTenantId();
+			secret = digest(cred.getPassword());
+			hash = Objects.hash(type, proto, username, tenantId) * 31 + Arrays.hashCode(secret);
+		}
+
+		private static byte[] digest(String secret) {
+			if (secret == null) {
+				return new byte[0];
+			}
+			try {
+				return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+			} catch (NoSuchAlgorithmException ex) {
+				// Every Java platform is required to support SHA-256
+				throw new IllegalStateException(ex);
+			}
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ClientKey)) {
+				return false;
+			}
+			ClientKey other = (ClientKey) obj;
+			return hash == other.hash && type == other.type && proto == other.proto
+					&& Objects.equals(username, other.username) && Objects.equals(tenantId, other.tenantId)
+					&& MessageDigest.isEqual(secret, other.secret);
+		}
+	}
+
+	/**
+	 * A bounded, least-recently-used cache of ApiClients keyed by credentials and
+	 * tenant. Clients are built outside the lock, so first use of one tenant does
+	 * not hold up the others; if two threads build the same client, the first to
+	 * be cached is kept.
+	 */
+	private static class ClientCache<C> {
+
+		@SuppressWarnings("serial")
+		private final Map<ClientKey, C> clients = new LinkedHashMap<ClientKey, C>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ClientKey, C> eldest) {
+				return size() > sMaxClients;
+			}
+		};
+
+		C get(Credentials cred, Supplier<C> factory) {
+			ClientKey key = new ClientKey(cred);
+			synchronized (this) {
+				C client = clients.get(key);
+				if (client != null) {
+					return client;
+				}
+			}
+			C built = factory.get();
+			synchronized (this) {
+				C client = clients.putIfAbsent(key, built);
+				return client != null ? client : built;
+			}
+		}
+
+		synchronized void clear() {
+			clients.clear();
+		}
+	}
+
 	private KimonoApis() {
 	}
 
+	/**
+	 * Set the maximum number of ApiClients of each kind to keep for reuse. The
+	 * least recently used client is discarded when the limit is reached.
+	 * 
+	 * @param size The maximum number of clients
+	 */
+	public static void setClientCacheSize(int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Client cache size must be at least 1");
+		}
+		sMaxClients = size;
+	}
+
+	/**
+	 * Discard all cached ApiClients, for example after credentials are rotated
+	 */
+	public static void clearClientCache() {
+		sInteropClients.clear();
+		sInteropDataClients.clear();
+		sBrokerClients.clear();
+	}
+
+	/**
+	 * Get the base path of the Interop Data APIs without constructing an
+	 * ApiClient
+	 */
+	public static String getInteropDataBasePath() {
+		return INTEROP_DATA_BASE_PATH;
+	}
+
+	/**
+	 * Derive an HTTP client that keeps the interceptors and timeouts of an
+	 * ApiClient's own client but uses the shared connection pool and dispatcher
+	 */
+	private static OkHttpClient shared(OkHttpClient http) {
+		return http.newBuilder().connectionPool(sHttpClient.connectionPool()).dispatcher(sHttpClient.dispatcher())
+				.build();
+	}
+
 	/**
 	 * Get an ApiClient to use for Interop APIs
 	 * 
@@ -35,13 +207,15 @@ public class KimonoApis {
 	public static kimono.api.v2.interop.ApiClient getInteropClient(Credentials cred) {
 		requireType(cred, Credentials.Type.ACCOUNT);
 
-		kimono.api.v2.interop.ApiClient client = new kimono.api.v2.interop.ApiClient();
-		client.setUsername(cred.getUsername());
-		client.setPassword(cred.getPassword());
-		client.setReadTimeout(READ_TIMEOUT);
-		client.setConnectTimeout(READ_TIMEOUT);
-
-		return client;
+		return sInteropClients.get(cred, () -> {
+			kimono.api.v2.interop.ApiClient client = new kimono.api.v2.interop.ApiClient();
+			client.setUsername(cred.getUsername());
+			client.setPassword(cred.getPassword());
+			client.setReadTimeout(READ_TIMEOUT);
+			client.setConnectTimeout(READ_TIMEOUT);
+			client.setHttpClient(shared(client.getHttpClient()));
+			return client;
+		});
 	}
 
 	/**
@@ -52,17 +226,24 @@ public class KimonoApis {
 	public static kimono.api.v2.interopdata.ApiClient getInteropDataClient(Credentials cred) {
 		requireType(cred, Credentials.Type.ACTOR);
 
-		kimono.api.v2.interopdata.ApiClient client;
-		if (cred.getProto() == Credentials.Proto.BASIC) {
-			client = new kimono.api.v2.interopdata.ApiClient();
-			client.setUsername(cred.getUsername());
-			client.setPassword(cred.getPassword());
-		} else {
-			client = new kimono.api.v2.interopdata.ApiClient(cred.getUsername(), cred.getPassword(), new HashMap<>());
+		kimono.api.v2.interopdata.ApiClient client = sInteropDataClients.get(cred, () -> {
+			kimono.api.v2.interopdata.ApiClient c;
+			if (cred.getProto() == Credentials.Proto.BASIC) {
+				c = new kimono.api.v2.interopdata.ApiClient();
+				c.setUsername(cred.getUsername());
+				c.setPassword(cred.getPassword());
+			} else {
+				c = new kimono.api.v2.interopdata.ApiClient(cred.getUsername(), cred.getPassword(), new HashMap<>());
+			}
+			c.setReadTimeout(READ_TIMEOUT);
+			c.setConnectTimeout(READ_TIMEOUT);
+			c.setHttpClient(shared(c.getHttpClient()));
+			return c;
+		});
+		if (cred.getProto() != Credentials.Proto.BASIC) {
+			// The token may have been refreshed since the client was cached
 			client.setAccessToken(cred.getAccessToken());
 		}
-		client.setReadTimeout(READ_TIMEOUT);
-		client.setConnectTimeout(READ_TIMEOUT);
 		return client;
 	}
 
@@ -83,18 +264,26 @@ public class KimonoApis {
 	 * Get an ApiClient to use for with Broker APIs
 	 */
 	public static kimono.api.v2.broker.ApiClient getBrokerClient(Credentials cred) {
-		kimono.api.v2.broker.ApiClient client;
-		if (cred.getType() == Credentials.Type.ACCOUNT
-				|| (cred.getType() == Credentials.Type.ACTOR && cred.getProto() == Credentials.Proto.BASIC)) {
-			client = new kimono.api.v2.broker.ApiClient();
-			client.setUsername(cred.getUsername());
-			client.setPassword(cred.getPassword());
-		} else {
-			client = new kimono.api.v2.broker.ApiClient(cred.getUsername(), cred.getPassword(), new HashMap<>());
+		boolean basic = cred.getType() == Credentials.Type.ACCOUNT
+				|| (cred.getType() == Credentials.Type.ACTOR && cred.getProto() == Credentials.Proto.BASIC);
+		kimono.api.v2.broker.ApiClient client = sBrokerClients.get(cred, () -> {
+			kimono.api.v2.broker.ApiClient c;
+			if (basic) {
+				c = new kimono.api.v2.broker.ApiClient();
+				c.setUsername(cred.getUsername());
+				c.setPassword(cred.getPassword());
+			} else {
+				c = new kimono.api.v2.broker.ApiClient(cred.getUsername(), cred.getPassword(), new HashMap<>());
+			}
+			c.setReadTimeout(READ_TIMEOUT);
+			c.setConnectTimeout(READ_TIMEOUT);
+			c.setHttpClient(shared(c.getHttpClient()));
+			return c;
+		});
+		if (!basic) {
+			// The token may have been refreshed since the client was cached
 			client.setAccessToken(cred.getAccessToken());
 		}
-		client.setReadTimeout(READ_TIMEOUT);
-		client.setConnectTimeout(READ_TIMEOUT);
 		return client;
 	}
 
@@ -29,8 +29,9 @@ import kimono.client.tasks.KCTask;
  * {@link #commitFiles()} to commit files received thus far.
  * <p>
  * 
- * {@link #commitFiles()} copies files to an archive folder. The archive folder 
- * is useful to see the last set of files that were committed.
+ * {@link #commitFiles()} moves files to an archive folder. The archive folder 
+ * is useful to see the last set of files that were committed. The File Manager
+ * may keep several generations of committed files, optionally compressed.
  */
 public interface KCFileManager {
 
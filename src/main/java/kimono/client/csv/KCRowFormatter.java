@@ -0,0 +1,30 @@
+package kimono.client.csv;
+
+import org.json.JSONObject;
+
+import kimono.client.tasks.KCTask;
+
+/**
+ * Formats a row of data for a {@link KCFile}
+ */
+@FunctionalInterface
+public interface KCRowFormatter {
+
+	/**
+	 * Format a row
+	 * 
+	 * @param task  The Data Event task
+	 * @param attrs The (mapped) attributes to write
+	 * @return The row, without a line separator, or null to skip the row
+	 */
+	String format(KCTask task, JSONObject attrs);
+
+	/**
+	 * Get the header row written at the start of a new file
+	 * 
+	 * @return The header, without a line separator, or null for no header
+	 */
+	default String header() {
+		return null;
+	}
+}
@@ -1,9 +1,16 @@
 package kimono.client.impl;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import org.apache.commons.lang3.StringUtils;
 
 import kimono.client.KCDriverInfo;
 import kimono.client.KCDriverProperties;
+import kimono.client.KCMetrics;
 import kimono.client.KCTenantSupplier;
 import kimono.client.KCTokenStore;
 import kimono.client.impl.tasks.TaskPoller;
@@ -16,6 +23,13 @@ import kong.unirest.Unirest;
  */
 public abstract class AbstractDriver {
 
+	private static final Logger LOGGER = Logger.getLogger(AbstractDriver.class.getName());
+
+	/**
+	 * Unirest's default maximum number of connections per route
+	 */
+	private static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+
 	/**
 	 * Driver properties (initialized from the command-line and environment
 	 * variables)
@@ -37,9 +51,6 @@ public abstract class AbstractDriver {
 		props = newProperties();
 		driverInfo = newDriverInfo();
 
-		// Configure a global KCTokenStore implementation on the Credentials class
-		Credentials.setTokenStore(newTokenStore());
-
 		// Unirest is temporarily used for some API calls, configure it to use Jackson
 		Unirest.config().setObjectMapper(new JacksonObjectMapper());
 	}
@@ -70,12 +81,43 @@ public abstract class AbstractDriver {
 	 */
 	public void run() throws Exception {
 
+		// Configure a global KCTokenStore implementation on the Credentials class.
+		// Done here rather than in the constructor so command-line options apply.
+		Credentials.setTokenStore(newTokenStore());
+
+		// Configure where polling, Tasks API and File Manager measurements go
+		KCMetrics metrics = newMetrics();
+		if (metrics != null) {
+			Metrics.setMetrics(metrics);
+		}
+
 		// Set up a tenant supplier constrained by command-line options
 		KCTenantSupplier tenants = new TenantSupplier().forTenants(props.getTenantIds())
-				.forAccounts(props.getAccountIds()).forIntegrations(driverInfo.getName());
+				.forAccounts(props.getAccountIds()).forIntegrations(driverInfo.getName())
+				.setCacheTtl(props.getTenantCacheTtl(), TimeUnit.SECONDS);
 
 		// Establish a Task Poller
 		KCTaskPoller poller = new TaskPoller(tenants);
+		poller.setConcurrency(props.getPollingThreads());
+		poller.setVirtualThreads(props.isVirtualThreads());
+		poller.setDispatchLanes(props.getDispatchLanes());
+		poller.setAckBatching(props.getAckBatchSize(), props.getAckBatchDelay(), TimeUnit.MILLISECONDS);
+		poller.setBulkAck(props.isAckBulk());
+		poller.setAckQueueDepth(props.getAckQueueDepth());
+		poller.setMaxPagesPerTenant(props.getMaxPagesPerTenant());
+		poller.setDedup(props.getDedupCapacity(), props.getDedupTtl(), TimeUnit.SECONDS);
+		if (props.isInbox()) {
+			poller.setInbox(new File(props.getInboxFolder()));
+		}
+		if (props.getMinPollingInterval() >= 0) {
+			poller.setAdaptiveInterval(props.getMinPollingInterval(), props.getPollingIntervalTimeUnit());
+		}
+
+		// Unirest allows only a limited number of connections per host by default;
+		// make sure concurrent tenants are not serialized behind it
+		if (props.getPollingThreads() > MAX_CONNECTIONS_PER_ROUTE) {
+			Unirest.config().concurrency(props.getPollingThreads() * 2, props.getPollingThreads());
+		}
 
 		// Let the concrete class set up task handlers
 		configureTaskHandlers(poller);
@@ -97,12 +139,36 @@ public abstract class AbstractDriver {
 	protected abstract KCDriverInfo newDriverInfo();
 
 	/**
-	 * Called to create a {@link KCTokenStore} implementation
+	 * Called to create a {@link KCTokenStore} implementation. With the
+	 * {@code -token_store:file} option, tokens are persisted in a memory-mapped
+	 * file so a restart does not reauthorize every tenant; otherwise they are
+	 * kept in memory.
 	 */
 	protected KCTokenStore newTokenStore() {
+		if ("file".equalsIgnoreCase(props.getTokenStore())) {
+			File file = new File(props.getTokenStoreFile());
+			try {
+				return new MappedFileTokenStore(file, props.getTokenStoreSlots(),
+						MappedFileTokenStore.DEFAULT_SLOT_SIZE);
+			} catch (IOException ex) {
+				LOGGER.log(Level.WARNING, "Cannot open token store " + file + "; keeping tokens in memory", ex);
+			}
+		}
 		return new InMemoryTokenStore();
 	}
 
+	/**
+	 * Called to create a {@link KCMetrics} implementation. With the
+	 * {@code -metrics_interval:s} option, measurements are recorded in memory
+	 * and logged every s seconds. The default returns null, which leaves any
+	 * implementation installed with {@link Metrics#setMetrics(KCMetrics)} in
+	 * place; no measurements are recorded otherwise.
+	 */
+	protected KCMetrics newMetrics() {
+		long interval = props.getMetricsInterval();
+		return interval > 0 ? new InMemoryMetrics(interval, TimeUnit.SECONDS) : null;
+	}
+
 	/**
 	 * Apply any options specified on the command-line or environment
 	 */
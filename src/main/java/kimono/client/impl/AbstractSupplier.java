@@ -1,11 +1,30 @@
 package kimono.client.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import kimono.client.KCSupplier;
+import kimono.client.util.ThreadUtils;
 
 public abstract class AbstractSupplier<T> implements KCSupplier<T> {
 
+	/**
+	 * Guards the cursor and pages. A lock rather than {@code synchronized}, as
+	 * pages are fetched while it is held and a virtual thread blocked inside a
+	 * monitor pins its carrier thread.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	
 	/**
 	 * The current page number
 	 */
@@ -21,40 +40,215 @@ public abstract class AbstractSupplier<T> implements KCSupplier<T> {
 	 */
 	private List<T> data;
 	
+	/**
+	 * Number of pages to fetch ahead of the consumer
+	 * @see #setPrefetch(int)
+	 */
+	private int prefetch = 0;
+	
+	/**
+	 * Runs page fetches one at a time, in page order, when prefetching
+	 */
+	private ExecutorService fetcher;
+	
+	/**
+	 * Pages requested ahead of the consumer, in page order
+	 */
+	private Deque<Future<Page<T>>> ahead = new ArrayDeque<>();
+	
+	/**
+	 * The number of the last page requested from the fetcher
+	 */
+	private int requested = 0;
+	
+	/**
+	 * When prefetching: did the current page report more pages after it?
+	 */
+	private boolean more;
+	
+	/**
+	 * When prefetching: set by the fetcher once the server reports there are no
+	 * more pages, so pages requested speculatively beyond the end are skipped.
+	 * Replaced on {@link #reset()} so a fetch still running from before the
+	 * reset cannot affect the new pass.
+	 */
+	private AtomicBoolean exhausted = new AtomicBoolean();
+	
+	/**
+	 * A fetched page and whether the server reported more pages after it
+	 */
+	private static class Page<T> {
+		private List<T> data;
+		private boolean more;
+
+		private Page( List<T> data, boolean more ) {
+			this.data = data;
+			this.more = more;
+		}
+	}
+	
+	/**
+	 * Fetch pages in the background ahead of the consumer. While the consumer
+	 * works through the current page, up to {@code depth} following pages are
+	 * fetched one at a time, in order, on a background thread. Prefetching
+	 * stops as soon as a page reports there are no more pages.<p>
+	 *
+	 * Only enable prefetching for suppliers whose {@link #fetch(int)} honors
+	 * the page number and does not depend on the consumer having processed
+	 * earlier pages.
+	 *
+	 * @param depth The number of pages to fetch ahead; 0 (the default) fetches
+	 * 	each page only when the consumer reaches it
+	 */
+	public void setPrefetch( int depth ) {
+		if( depth < 0 ) {
+			throw new IllegalArgumentException("Prefetch depth cannot be negative");
+		}
+		lock.lock();
+		try {
+			if( depth > 0 && fetcher == null ) {
+				// The thread exits when idle so an abandoned supplier does not leak it
+				fetcher = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+						ThreadUtils.newThreadFactory("kimono-prefetch"));
+			}
+			prefetch = depth;
+			data = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
 	@Override
-	public synchronized void reset() {
-		page = 0;
-		data = fetch(page);
-		cursor = initCursor(data);
+	public void reset() {
+		lock.lock();
+		try {
+			page = 0;
+			if( prefetch > 0 ) {
+				ahead.forEach(f -> f.cancel(false));
+				ahead.clear();
+				exhausted = new AtomicBoolean();
+				requested = 0;
+				accept(ThreadUtils.await(request(0)));
+				schedule();
+			} else {
+				data = fetch(page);
+			}
+			cursor = initCursor(data);
+		} finally {
+			lock.unlock();
+		}
 	}
 	
 	@Override
-	public synchronized boolean hasNext() {
-		if( data == null ) {
-			reset();
+	public boolean hasNext() {
+		lock.lock();
+		try {
+			if( data == null ) {
+				reset();
+			}
+			return hasCursor() || morePages();
+		} finally {
+			lock.unlock();
 		}
-		return hasCursor() || hasMorePages();
 	}
 	
 	private boolean hasCursor() {
 		return ( data != null && cursor >= 0 && cursor < data.size() );
 	}
-
+	
 	private int initCursor( List<T> data ) {
 		return data == null || data.isEmpty() ? -1 : 0;
 	}
-
+	
+	private boolean morePages() {
+		return prefetch > 0 ? more : hasMorePages();
+	}
+	
+	/**
+	 * Move to the next page
+	 * @return false if there are no more pages
+	 */
+	private boolean advance() {
+		if( !morePages() ) {
+			return false;
+		}
+		if( prefetch > 0 ) {
+			Future<Page<T>> f = ahead.poll();
+			if( f == null ) {
+				f = request(++requested);
+			}
+			page++;
+			accept(ThreadUtils.await(f));
+			schedule();
+		} else {
+			data = fetch(++page);
+		}
+		cursor = initCursor(data);
+		return true;
+	}
+	
+	private void accept( Page<T> p ) {
+		data = p.data;
+		more = p.more;
+	}
+	
+	/**
+	 * Keep up to {@link #prefetch} pages requested ahead of the consumer
+	 */
+	private void schedule() {
+		while( ahead.size() < prefetch && !exhausted.get() ) {
+			ahead.add(request(++requested));
+		}
+	}
+	
+	/**
+	 * Ask the fetcher for a page
+	 */
+	private Future<Page<T>> request( int n ) {
+		AtomicBoolean done = exhausted;
+		return fetcher.submit(() -> {
+			if( done.get() ) {
+				return new Page<T>(Collections.emptyList(), false);
+			}
+			List<T> d = fetch(n);
+			boolean m = hasMorePages();
+			if( !m ) {
+				done.set(true);
+			}
+			return new Page<T>(d, m);
+		});
+	}
+	
 	@Override
-	public synchronized T next() {
-		if( hasCursor() ) {
+	public T next() {
+		lock.lock();
+		try {
+			while( !hasCursor() ) {
+				if( !advance() ) {
+					return null;
+				}
+			}
 			return data.get(cursor++);
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public List<T> nextPage() {
+		lock.lock();
+		try {
+			if( !hasCursor() ) {
+				if( !advance() || !hasCursor() ) {
+					return Collections.emptyList();
+				}
+			}
+			List<T> rest = new ArrayList<>(data.subList(cursor, data.size()));
+			cursor = data.size();
+			return rest;
+		} finally {
+			lock.unlock();
 		}
-		if( hasMorePages() ) {
-			data = fetch(++page);
-			cursor = initCursor(data);
-			return next();
-		} 
-		return null;
 	}
 	
 	protected abstract boolean hasMorePages();
@@ -30,9 +30,25 @@ public class Credentials {
 		OAUTH2, BASIC
 	}
 
+	/**
+	 * An access token and the time it expires, replaced as a unit so a thread
+	 * never sees one token with another's expiry
+	 */
+	private static final class AccessToken {
+		final String value;
+		final long expiresAt;
+
+		AccessToken(String value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = value == null ? 0 : expiresAt;
+		}
+	}
+
+	private static final AccessToken NO_TOKEN = new AccessToken(null, 0);
+
 	private String username;
 	private String password;
-	private String token;
+	private volatile AccessToken token = NO_TOKEN;
 	private Type type;
 	private Proto proto;
 	private UUID tenantId;
@@ -172,20 +188,85 @@ public class Credentials {
 		return proto;
 	}
 
+	/**
+	 * Get the tenant these credentials belong to
+	 * 
+	 * @return The tenant ID, or null for Account Authentication
+	 */
+	public UUID getTenantId() {
+		return tenantId;
+	}
+
 	public String getAccessToken() {
+		return accessToken().value;
+	}
+
+	/**
+	 * Get the time the access token expires
+	 * 
+	 * @return The expiry time in milliseconds since the epoch, or 0 if there is
+	 *         no token or its expiry is unknown
+	 */
+	public long getAccessTokenExpiry() {
+		return accessToken().expiresAt;
+	}
+
+	private AccessToken accessToken() {
+		AccessToken current = token;
 		// If the token is null, try and resolve it from the token store
-		if (token == null && tenantId != null && sTokenStore != null) {
-			token = sTokenStore.getToken(tenantId, KCTokenType.BEARER);
+		if (current.value == null && tenantId != null && sTokenStore != null) {
+			String value = sTokenStore.getToken(tenantId, KCTokenType.BEARER);
+			if (value != null) {
+				current = new AccessToken(value, sTokenStore.getTokenExpiry(tenantId, KCTokenType.BEARER));
+				token = current;
+			}
 		}
-		return token;
+		return current;
 	}
 
 	public void setAccessToken(String value) {
+		setAccessToken(value, 0);
+	}
+
+	/**
+	 * Set the access token and the time it expires
+	 * 
+	 * @param value     The token
+	 * @param expiresAt The expiry time in milliseconds since the epoch, or 0 if
+	 *                  unknown
+	 */
+	public void setAccessToken(String value, long expiresAt) {
 		// Persist the token if a token store is available
 		if (tenantId != null && sTokenStore != null) {
-			sTokenStore.setToken(tenantId, KCTokenType.BEARER, value);
+			sTokenStore.setToken(tenantId, KCTokenType.BEARER, value, expiresAt);
+		}
+		token = new AccessToken(value, expiresAt);
+	}
+
+	/**
+	 * Use an access token that was obtained, and already stored, on behalf of
+	 * other credentials for the same tenant
+	 * 
+	 * @param value     The token
+	 * @param expiresAt The expiry time in milliseconds since the epoch, or 0 if
+	 *                  unknown
+	 */
+	void useAccessToken(String value, long expiresAt) {
+		token = new AccessToken(value, expiresAt);
+	}
+
+	/**
+	 * Discard the access token after a server has rejected it. The token store is
+	 * cleared only if it still holds the rejected token, so a token another thread
+	 * has already refreshed for the same tenant is kept.
+	 */
+	public void invalidateAccessToken() {
+		String rejected = token.value;
+		token = NO_TOKEN;
+		if (rejected != null && tenantId != null && sTokenStore != null
+				&& rejected.equals(sTokenStore.getToken(tenantId, KCTokenType.BEARER))) {
+			sTokenStore.clearToken(tenantId, KCTokenType.BEARER);
 		}
-		token = value;
 	}
 
 	/**
@@ -1,5 +1,6 @@
 package kimono.client.impl;
 
+import java.io.File;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Properties;
@@ -17,8 +18,44 @@ public class DriverProperties implements KCDriverProperties {
 	
 	private static final String PROP_POLLING_INTERVAL_UNITS = "polling_interval_units";
 
+	private static final String PROP_POLLING_INTERVAL_MIN = "polling_interval_min";
+
+	private static final String PROP_MAX_PAGES_PER_TENANT = "max_pages_per_tenant";
+
+	private static final String PROP_POLLING_THREADS = "polling_threads";
+
+	private static final String PROP_VIRTUAL_THREADS = "virtual_threads";
+
+	private static final String PROP_DISPATCH_LANES = "dispatch_lanes";
+
+	private static final String PROP_ACK_BATCH_SIZE = "ack_batch_size";
+
+	private static final String PROP_ACK_BATCH_DELAY = "ack_batch_delay";
+
+	private static final String PROP_ACK_BULK = "ack_bulk";
+
+	private static final String PROP_ACK_QUEUE_DEPTH = "ack_queue_depth";
+
 	private static final String PROP_OUTPUT_FOLDER = "output_folder";
 
+	private static final String PROP_TOKEN_STORE = "token_store";
+
+	private static final String PROP_TOKEN_STORE_FILE = "token_store_file";
+
+	private static final String PROP_TOKEN_STORE_SLOTS = "token_store_slots";
+
+	private static final String PROP_TENANT_CACHE_TTL = "tenant_cache_ttl";
+
+	private static final String PROP_DEDUP_CAPACITY = "dedup_capacity";
+
+	private static final String PROP_INBOX = "inbox";
+
+	private static final String PROP_INBOX_FOLDER = "inbox_folder";
+
+	private static final String PROP_DEDUP_TTL = "dedup_ttl";
+
+	private static final String PROP_METRICS_INTERVAL = "metrics_interval";
+
 	Properties props = new Properties();
 	
 	/**
@@ -45,10 +82,103 @@ public class DriverProperties implements KCDriverProperties {
 		return TimeUnit.valueOf(props.getProperty(PROP_POLLING_INTERVAL_UNITS, "SECONDS").toUpperCase());
 	}
 	
+	@Override
+	public int getMinPollingInterval() {
+		return Integer.parseInt(props.getProperty(PROP_POLLING_INTERVAL_MIN, "-1"));
+	}
+	
+	@Override
+	public int getMaxPagesPerTenant() {
+		return Integer.parseInt(props.getProperty(PROP_MAX_PAGES_PER_TENANT, "0"));
+	}
+	
+	@Override
+	public int getPollingThreads() {
+		return Integer.parseInt(props.getProperty(PROP_POLLING_THREADS, "1"));
+	}
+	
+	@Override
+	public boolean isVirtualThreads() {
+		String value = props.getProperty(PROP_VIRTUAL_THREADS);
+		return value != null && !value.equalsIgnoreCase("false");
+	}
+	
+	@Override
+	public int getDispatchLanes() {
+		return Integer.parseInt(props.getProperty(PROP_DISPATCH_LANES, "1"));
+	}
+	
+	@Override
+	public int getAckBatchSize() {
+		return Integer.parseInt(props.getProperty(PROP_ACK_BATCH_SIZE, isAckBulk() ? "50" : "1"));
+	}
+	
+	@Override
+	public long getAckBatchDelay() {
+		return Long.parseLong(props.getProperty(PROP_ACK_BATCH_DELAY, isAckBulk() ? "1000" : "0"));
+	}
+	
+	@Override
+	public boolean isAckBulk() {
+		String value = props.getProperty(PROP_ACK_BULK);
+		return value != null && !value.equalsIgnoreCase("false");
+	}
+	
+	@Override
+	public int getAckQueueDepth() {
+		return Integer.parseInt(props.getProperty(PROP_ACK_QUEUE_DEPTH, "0"));
+	}
+	
 	@Override
 	public String getOutputFolder() {
 		return props.getProperty(PROP_OUTPUT_FOLDER, "output");
 	}
+	
+	@Override
+	public String getTokenStore() {
+		return props.getProperty(PROP_TOKEN_STORE, "memory");
+	}
+	
+	@Override
+	public String getTokenStoreFile() {
+		return props.getProperty(PROP_TOKEN_STORE_FILE, new File(getOutputFolder(), "tokens.dat").getPath());
+	}
+	
+	@Override
+	public int getTokenStoreSlots() {
+		return Integer.parseInt(props.getProperty(PROP_TOKEN_STORE_SLOTS, String.valueOf(DEFAULT_TOKEN_STORE_SLOTS)));
+	}
+	
+	@Override
+	public long getTenantCacheTtl() {
+		return Long.parseLong(props.getProperty(PROP_TENANT_CACHE_TTL, "0"));
+	}
+	
+	@Override
+	public boolean isInbox() {
+		String value = props.getProperty(PROP_INBOX);
+		return value != null && !value.equalsIgnoreCase("false");
+	}
+	
+	@Override
+	public String getInboxFolder() {
+		return props.getProperty(PROP_INBOX_FOLDER, new File(getOutputFolder(), "inbox").getPath());
+	}
+	
+	@Override
+	public int getDedupCapacity() {
+		return Integer.parseInt(props.getProperty(PROP_DEDUP_CAPACITY, "0"));
+	}
+	
+	@Override
+	public long getDedupTtl() {
+		return Long.parseLong(props.getProperty(PROP_DEDUP_TTL, "3600"));
+	}
+	
+	@Override
+	public long getMetricsInterval() {
+		return Long.parseLong(props.getProperty(PROP_METRICS_INTERVAL, "0"));
+	}
 
 	@Override
 	public void setTenantIds(String ids) {
@@ -85,6 +215,63 @@ public class DriverProperties implements KCDriverProperties {
 	 * {@code -account:id1,id2,...} Comma-delimited list of account IDs to limit
 	 * 	processing to. When specified the driver processes Tasks for only those
 	 * 	tenants that belong to these accounts.
+	 * 
+	 * {@code -polling_interval_min:n} Adapt the polling interval to queue 
+	 * 	activity, polling no more often than every n polling interval units.
+	 * 
+	 * {@code -max_pages_per_tenant:n} Maximum number of pages of Tasks to handle
+	 * 	for each tenant in one polling interval.
+	 * 
+	 * {@code -polling_threads:n} Number of tenants to poll concurrently.
+	 * 
+	 * {@code -virtual_threads} Poll each tenant on its own virtual thread (Java
+	 * 	21 or later).
+	 * 
+	 * {@code -dispatch_lanes:n} Number of lanes to dispatch each tenant's Data
+	 * 	Events on.
+	 * 
+	 * {@code -ack_batch_size:n} Maximum number of Task acknowledgements to send
+	 * 	in one request (default 50 with {@code -ack_bulk}, otherwise 1).
+	 * 
+	 * {@code -ack_batch_delay:ms} Maximum time a Task acknowledgement waits in a
+	 * 	batch before it is sent (default 1000 with {@code -ack_bulk}, otherwise
+	 * 	0).
+	 * 
+	 * {@code -ack_bulk} Send each batch of Task acknowledgements in a single
+	 * 	request, where the server offers bulk acknowledgement.
+	 * 
+	 * {@code -ack_queue_depth:n} Send Task acknowledgements from a background
+	 * 	sender, queueing up to n per tenant.
+	 * 
+	 * {@code -token_store:file} Persist OAuth2 tokens in a memory-mapped file
+	 * 	so they survive a restart.
+	 * 
+	 * {@code -token_store_file:path} The token store file (default 
+	 * 	tokens.dat in the output folder).
+	 * 
+	 * {@code -token_store_slots:n} The number of tokens the token store file
+	 * 	can hold.
+	 * 
+	 * {@code -tenant_cache_ttl:s} Cache the list of tenants, refreshing it
+	 * 	every s seconds and whenever a tenant is installed or uninstalled.
+	 * 
+	 * {@code -inbox} Journal Tasks to a durable local inbox and acknowledge
+	 * 	them before they are handled.
+	 * 
+	 * {@code -inbox_folder:path} The inbox folder (default inbox in the output
+	 * 	folder).
+	 * 
+	 * {@code -dedup_capacity:n} Remember the IDs of the last n Tasks completed
+	 * 	for each tenant and do not handle them again if they are redelivered.
+	 * 
+	 * {@code -dedup_ttl:s} How long in seconds to remember a completed Task
+	 * 	(default 3600).
+	 * 
+	 * {@code -metrics_interval:s} Record polling, Tasks API and File Manager
+	 * 	measurements in memory and log them every s seconds.
+	 * 
+	 * Any other option is recorded as-is; options without a value are recorded
+	 * with an empty value so {@link #hasOption(String)} reports them.
 	 */
 	@Override
 	public void setOption(String name, String value) {
@@ -94,7 +281,7 @@ public class DriverProperties implements KCDriverProperties {
 		if( name.equalsIgnoreCase("account") ) {
 			setAccountIds(value);
 		} else {
-			props.setProperty(name, null);
+			props.setProperty(name, value == null ? "" : value);
 		}
 	}
 
@@ -0,0 +1,121 @@
+package kimono.client.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values. Values are counted in
+ * exponentially sized buckets, each power of two split into eight, so
+ * percentiles are accurate to within 12.5% while the histogram stays a fixed,
+ * small size however many values are recorded.
+ */
+public class Histogram {
+
+	/**
+	 * Sub-buckets per power of two, as a power of two
+	 */
+	private static final int SUB_BITS = 3;
+
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	private AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_COUNT);
+
+	private LongAdder count = new LongAdder();
+
+	private LongAdder sum = new LongAdder();
+
+	private AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a value. Negative values are recorded as 0.
+	 */
+	public void record(long value) {
+		long v = Math.max(value, 0);
+		buckets.incrementAndGet(bucket(v));
+		count.increment();
+		sum.add(v);
+		if (v > max.get()) {
+			max.accumulateAndGet(v, Math::max);
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getSum() {
+		return sum.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = getCount();
+		return n == 0 ? 0 : (double) getSum() / n;
+	}
+
+	/**
+	 * Get an approximate percentile
+	 * 
+	 * @param percentile The percentile, from 0 to 100
+	 * @return The upper bound of the bucket containing the percentile, or 0 if no
+	 *         values have been recorded
+	 */
+	public long getPercentile(double percentile) {
+		long n = getCount();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+		long seen = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Describe the histogram, treating values as nanoseconds
+	 */
+	public String describeNanos() {
+		return String.format("count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms", getCount(),
+				getMean() / TimeUnit.MILLISECONDS.toNanos(1), millis(getPercentile(50)), millis(getPercentile(99)),
+				millis(getMax()));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d mean=%.1f p50=%d p99=%d max=%d", getCount(), getMean(), getPercentile(50),
+				getPercentile(99), getMax());
+	}
+
+	private static double millis(long nanos) {
+		return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private static int bucket(long v) {
+		if (v < SUB_COUNT) {
+			return (int) v;
+		}
+		int exp = 63 - Long.numberOfLeadingZeros(v);
+		int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_COUNT) {
+			return bucket;
+		}
+		int exp = bucket / SUB_COUNT + SUB_BITS - 1;
+		int sub = bucket % SUB_COUNT;
+		long width = 1L << (exp - SUB_BITS);
+		return ((SUB_COUNT + sub) * width) + width - 1;
+	}
+}
@@ -0,0 +1,301 @@
+package kimono.client.impl;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kimono.client.KCMetrics;
+import kimono.client.KCTenant;
+import kimono.client.KCTopic;
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+import kimono.client.tasks.KCTaskAction;
+import kimono.client.tasks.KCTaskType;
+
+/**
+ * A {@link KCMetrics} implementation that records measurements in memory as
+ * {@link Histogram}s and counters. Handler latency is broken down by Task type,
+ * topic and action; polling time and backlog are broken down by tenant. The
+ * measurements can optionally be logged at a regular interval.
+ */
+public class InMemoryMetrics implements KCMetrics {
+
+	private static final Logger LOGGER = Logger.getLogger(InMemoryMetrics.class.getName());
+
+	public static final String FETCH_LATENCY = "fetch.latency";
+	public static final String FETCH_SIZE = "fetch.size";
+	public static final String HANDLER_LATENCY = "handler.latency";
+	public static final String ACK_LATENCY = "ack.latency";
+	public static final String ACK_SIZE = "ack.size";
+	public static final String CYCLE_LATENCY = "cycle.latency";
+	public static final String TENANT_LATENCY = "tenant.latency";
+	public static final String FILE_WRITE_LATENCY = "file.write.latency";
+	public static final String FILE_COMMIT_LATENCY = "file.commit.latency";
+
+	public static final String RETRIES = "retries";
+	public static final String ERRORS = "errors";
+	public static final String REAUTHORIZED = "reauthorized";
+	public static final String BACKLOG = "backlog";
+	public static final String QUARANTINED = "quarantined";
+	public static final String DUPLICATES = "duplicates";
+	public static final String SEQUENCE_GAPS = "sequence.gaps";
+	public static final String SEQUENCE_DUPLICATES = "sequence.duplicates";
+
+	private ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+	/**
+	 * Histograms broken down by Task type, topic, action or tenant
+	 */
+	private ConcurrentMap<Key, Histogram> breakdowns = new ConcurrentHashMap<>();
+
+	private ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * The number of consecutive polling intervals each tenant has ended with a
+	 * backlog
+	 */
+	private ConcurrentMap<UUID, Integer> backlog = new ConcurrentHashMap<>();
+
+	/**
+	 * How often to log the measurements; 0 to never log them
+	 */
+	private long reportInterval;
+
+	/**
+	 * When the measurements were last logged
+	 */
+	private AtomicLong lastReport = new AtomicLong(System.nanoTime());
+
+	public InMemoryMetrics() {
+		this(0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param reportInterval Log the measurements at INFO level at most this often,
+	 *                       at the end of a polling interval; 0 to never log them
+	 * @param unit           The unit of {@code reportInterval}
+	 */
+	public InMemoryMetrics(long reportInterval, TimeUnit unit) {
+		this.reportInterval = unit.toNanos(reportInterval);
+	}
+
+	@Override
+	public void fetched(KCTenant tenant, int tasks, long nanos) {
+		histogram(FETCH_LATENCY).record(nanos);
+		histogram(FETCH_SIZE).record(tasks);
+	}
+
+	@Override
+	public void handled(KCTenant tenant, KCTask task, KCTaskAck ack, long nanos) {
+		handlerLatency(task.getType(), task.getTopic(), task.getAction()).record(nanos);
+		if (ack != null && ack.getStatus() == KCTaskAck.Status.RETRY) {
+			counter(RETRIES).increment();
+		} else if (ack != null && ack.getStatus() == KCTaskAck.Status.ERROR) {
+			counter(ERRORS).increment();
+		}
+	}
+
+	@Override
+	public void duplicate(KCTenant tenant, KCTask task) {
+		counter(DUPLICATES).increment();
+	}
+
+	@Override
+	public void sequenceGap(KCTenant tenant, String groupId, long missing) {
+		counter(SEQUENCE_GAPS).add(missing);
+	}
+
+	@Override
+	public void sequenceDuplicate(KCTenant tenant, String groupId, long sequence) {
+		counter(SEQUENCE_DUPLICATES).increment();
+	}
+
+	@Override
+	public void acked(KCTenant tenant, int count, long nanos) {
+		histogram(ACK_LATENCY).record(nanos);
+		histogram(ACK_SIZE).record(count);
+	}
+
+	@Override
+	public void reauthorized(KCTenant tenant) {
+		counter(REAUTHORIZED).increment();
+	}
+
+	@Override
+	public void polled(KCTenant tenant, int tasks, boolean backlog, long nanos) {
+		UUID id = tenant.getTenantInfo().getId();
+		tenantLatency(id).record(nanos);
+		if (backlog) {
+			counter(BACKLOG).increment();
+			this.backlog.merge(id, 1, Integer::sum);
+		} else {
+			this.backlog.remove(id);
+		}
+	}
+
+	@Override
+	public void quarantined(KCTenant tenant, long nanos) {
+		counter(QUARANTINED).increment();
+	}
+
+	@Override
+	public void cycled(int tasks, long nanos) {
+		histogram(CYCLE_LATENCY).record(nanos);
+		if (reportInterval > 0) {
+			long now = System.nanoTime();
+			long last = lastReport.get();
+			if (now - last >= reportInterval && lastReport.compareAndSet(last, now)) {
+				LOGGER.log(Level.INFO, "Metrics\n{0}", report());
+			}
+		}
+	}
+
+	@Override
+	public void written(KCTenant tenant, KCTopic topic, long nanos) {
+		fileWriteLatency(topic).record(nanos);
+	}
+
+	@Override
+	public void committed(KCTenant tenant, long nanos) {
+		histogram(FILE_COMMIT_LATENCY).record(nanos);
+	}
+
+	/**
+	 * Get a histogram, creating it if it does not exist
+	 *
+	 * @param name The name, e.g. {@link #FETCH_LATENCY}
+	 */
+	public Histogram histogram(String name) {
+		return histograms.computeIfAbsent(name, n -> new Histogram());
+	}
+
+	/**
+	 * Get the handler latency histogram for a Task type, topic and action,
+	 * creating it if it does not exist
+	 */
+	public Histogram handlerLatency(KCTaskType type, KCTopic topic, KCTaskAction action) {
+		return breakdowns.computeIfAbsent(new Key(HANDLER_LATENCY, type, topic, action), k -> new Histogram());
+	}
+
+	/**
+	 * Get the polling time histogram for a tenant, creating it if it does not
+	 * exist
+	 */
+	public Histogram tenantLatency(UUID tenantId) {
+		return breakdowns.computeIfAbsent(new Key(TENANT_LATENCY, tenantId, null, null), k -> new Histogram());
+	}
+
+	/**
+	 * Get the row write latency histogram for a topic, creating it if it does
+	 * not exist
+	 */
+	public Histogram fileWriteLatency(KCTopic topic) {
+		return breakdowns.computeIfAbsent(new Key(FILE_WRITE_LATENCY, topic, null, null), k -> new Histogram());
+	}
+
+	/**
+	 * Get the value of a counter
+	 *
+	 * @param name The name, e.g. {@link #RETRIES}
+	 */
+	public long getCount(String name) {
+		LongAdder c = counters.get(name);
+		return c == null ? 0 : c.sum();
+	}
+
+	/**
+	 * Get the number of consecutive polling intervals each tenant has ended with
+	 * Tasks left in its queue. Tenants without a backlog are not included.
+	 */
+	public Map<UUID, Integer> getBacklog() {
+		return new TreeMap<>(backlog);
+	}
+
+	/**
+	 * Describe every measurement, one per line
+	 */
+	public String report() {
+		StringBuilder b = new StringBuilder();
+		Map<String, Histogram> all = new TreeMap<>(histograms);
+		breakdowns.forEach((key, h) -> all.put(key.toString(), h));
+		all.forEach((name, h) -> {
+			b.append(name).append(": ");
+			b.append(name.startsWith(FETCH_SIZE) || name.startsWith(ACK_SIZE) ? h.toString() : h.describeNanos());
+			b.append("\n");
+		});
+		new TreeMap<>(counters).forEach((name, c) -> b.append(name).append(": ").append(c.sum()).append("\n"));
+		backlog.forEach((id, n) -> b.append(BACKLOG).append(" ").append(id).append(": ").append(n).append("\n"));
+		return b.toString();
+	}
+
+	@Override
+	public String toString() {
+		return report();
+	}
+
+	private LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, n -> new LongAdder());
+	}
+
+	/**
+	 * Identifies a histogram in {@link InMemoryMetrics#breakdowns} by its name
+	 * and up to three dimensions, so a measurement can be recorded without
+	 * building the histogram's name. The name is built only when it is
+	 * reported.
+	 */
+	private static final class Key {
+
+		private final String name;
+
+		private final Object first, second, third;
+
+		private final int hash;
+
+		Key(String name, Object first, Object second, Object third) {
+			this.name = name;
+			this.first = first;
+			this.second = second;
+			this.third = third;
+			int h = name.hashCode();
+			h = 31 * h + Objects.hashCode(first);
+			h = 31 * h + Objects.hashCode(second);
+			h = 31 * h + Objects.hashCode(third);
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash && name.equals(other.name) && Objects.equals(first, other.first)
+					&& Objects.equals(second, other.second) && Objects.equals(third, other.third);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder b = new StringBuilder(name).append(" ").append(first);
+			if (second != null || third != null) {
+				b.append(" ").append(second).append(" ").append(third);
+			}
+			return b.toString();
+		}
+	}
+}
@@ -1,27 +1,57 @@
 package kimono.client.impl;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import kimono.client.KCTokenStore;
 import kimono.client.KCTokenType;
 
 /**
- * A {@link KCTokenStore} implementation that records tokens in memory
+ * A {@link KCTokenStore} implementation that records tokens in memory. Safe for
+ * use by concurrent polling threads.
  */
 public class InMemoryTokenStore implements KCTokenStore {
 
-	private Map<UUID,String> tokens = new HashMap<>();
+	/**
+	 * A token and when it expires
+	 */
+	private static class Entry {
+		private String value;
+		private long expiresAt;
+
+		private Entry(String value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private Map<UUID,Entry> tokens = new ConcurrentHashMap<>();
 	
 	@Override
 	public String getToken(UUID tenantId, KCTokenType type) {
-		return tokens.get(tenantId);
+		Entry e = tokens.get(tenantId);
+		return e == null ? null : e.value;
+	}
+
+	@Override
+	public long getTokenExpiry(UUID tenantId, KCTokenType type) {
+		Entry e = tokens.get(tenantId);
+		return e == null ? 0 : e.expiresAt;
 	}
 
 	@Override
 	public void setToken(UUID tenantId, KCTokenType type, String value) {
-		tokens.put(tenantId, value);
+		setToken(tenantId, type, value, 0);
+	}
+
+	@Override
+	public void setToken(UUID tenantId, KCTokenType type, String value, long expiresAt) {
+		if (value == null) {
+			tokens.remove(tenantId);
+		} else {
+			tokens.put(tenantId, new Entry(value, expiresAt));
+		}
 	}
 
 	@Override
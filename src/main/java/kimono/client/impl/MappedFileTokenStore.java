@@ -0,0 +1,406 @@
+package kimono.client.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import kimono.client.KCDriverProperties;
+import kimono.client.KCTokenStore;
+import kimono.client.KCTokenType;
+
+/**
+ * A {@link KCTokenStore} that persists tokens in a memory-mapped file so they
+ * survive a restart. Without it every tenant must be reauthorized when the
+ * driver starts.
+ * <p>
+ *
+ * The file holds a fixed number of fixed-size slots, one per tenant and token
+ * type. Each slot records the token, its expiry and a checksum, so a slot torn
+ * by a crash is ignored. Tokens are also cached in memory, so the file is only
+ * read when the store is opened and is written when a token changes. When every
+ * slot is in use, the slot whose token expires soonest is reused. Tokens that do
+ * not fit in a slot are kept in memory only.
+ * <p>
+ *
+ * The store is safe for concurrent use within a process. The file is locked
+ * while the store is open, so only one process can use it at a time.
+ */
+public class MappedFileTokenStore implements KCTokenStore, Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(MappedFileTokenStore.class.getName());
+
+	/**
+	 * The default number of slots
+	 */
+	public static final int DEFAULT_SLOTS = KCDriverProperties.DEFAULT_TOKEN_STORE_SLOTS;
+
+	/**
+	 * The default slot size in bytes
+	 */
+	public static final int DEFAULT_SLOT_SIZE = 4096;
+
+	private static final int MAGIC = 0x4B435453; // "KCTS"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 32;
+
+	/*
+	 * Slot layout
+	 */
+	private static final int SLOT_STATE = 0;
+	private static final int SLOT_TYPE = 1;
+	private static final int SLOT_LENGTH = 4;
+	private static final int SLOT_TENANT = 8;
+	private static final int SLOT_EXPIRES = 24;
+	private static final int SLOT_CRC = 32;
+	private static final int SLOT_TOKEN = 36;
+
+	private static final byte FREE = 0;
+	private static final byte USED = 1;
+
+	/**
+	 * A tenant and token type
+	 */
+	private static final class Key {
+		private final UUID tenantId;
+		private final KCTokenType type;
+
+		private Key(UUID tenantId, KCTokenType type) {
+			this.tenantId = tenantId;
+			this.type = type;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(tenantId, type);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return tenantId.equals(other.tenantId) && type == other.type;
+		}
+	}
+
+	/**
+	 * A token, when it expires, and the slot it is stored in (-1 if none)
+	 */
+	private static final class Entry {
+		private final String value;
+		private final long expiresAt;
+		private final int slot;
+
+		private Entry(String value, long expiresAt, int slot) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+			this.slot = slot;
+		}
+	}
+
+	private File file;
+
+	private int slots;
+
+	private int slotSize;
+
+	private FileChannel channel;
+
+	private FileLock lock;
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Tokens by tenant and type. Guarded by {@code this}.
+	 */
+	private Map<Key, Entry> tokens = new HashMap<>();
+
+	/**
+	 * Slots not holding a token. Guarded by {@code this}.
+	 */
+	private Deque<Integer> free = new ArrayDeque<>();
+
+	/**
+	 * Open a token store with {@link #DEFAULT_SLOTS} slots of
+	 * {@link #DEFAULT_SLOT_SIZE} bytes
+	 *
+	 * @param file The file, created if it does not exist
+	 */
+	public MappedFileTokenStore(File file) throws IOException {
+		this(file, DEFAULT_SLOTS, DEFAULT_SLOT_SIZE);
+	}
+
+	/**
+	 * Open a token store. A file created with a different number or size of slots
+	 * is discarded and recreated.
+	 *
+	 * @param file     The file, created if it does not exist
+	 * @param slots    The number of tokens the file can hold
+	 * @param slotSize The size of each slot in bytes, which limits the size of a
+	 *                 token
+	 */
+	public MappedFileTokenStore(File file, int slots, int slotSize) throws IOException {
+		if (slots < 1) {
+			throw new IllegalArgumentException("Token store must have at least one slot");
+		}
+		if (slotSize <= SLOT_TOKEN) {
+			throw new IllegalArgumentException("Token store slots must be larger than " + SLOT_TOKEN + " bytes");
+		}
+		if (HEADER_SIZE + (long) slots * slotSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Token store cannot be larger than 2GB");
+		}
+		this.file = file;
+		this.slots = slots;
+		this.slotSize = slotSize;
+		open();
+	}
+
+	private void open() throws IOException {
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		Path path = file.toPath();
+		FileAttribute<?>[] attrs;
+		if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			// Created readable by the owner only, so there is no moment the tokens
+			// are exposed
+			attrs = new FileAttribute<?>[] {
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+		} else {
+			if (!file.exists()) {
+				LOGGER.log(Level.WARNING, "Cannot restrict access to token store {0}; protect its folder", file);
+			}
+			attrs = new FileAttribute<?>[0];
+		}
+		channel = FileChannel.open(path, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE), attrs);
+		try {
+			try {
+				lock = channel.tryLock();
+			} catch (OverlappingFileLockException ex) {
+				// Already open in this process
+				lock = null;
+			}
+			if (lock == null) {
+				throw new IOException("Token store is already in use (" + file + ")");
+			}
+
+			long size = HEADER_SIZE + (long) slots * slotSize;
+			boolean valid = channel.size() == size && readHeader();
+			if (!valid) {
+				channel.truncate(0);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			if (valid) {
+				load();
+			} else {
+				buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slots).putInt(12, slotSize);
+				for (int i = 0; i < slots; i++) {
+					free.add(i);
+				}
+			}
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	private boolean readHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(16);
+		channel.read(header, 0);
+		header.flip();
+		return header.remaining() == 16 && header.getInt() == MAGIC && header.getInt() == VERSION
+				&& header.getInt() == slots && header.getInt() == slotSize;
+	}
+
+	/**
+	 * Read every valid, unexpired token from the file
+	 */
+	private void load() {
+		long now = System.currentTimeMillis();
+		KCTokenType[] types = KCTokenType.values();
+		for (int i = 0; i < slots; i++) {
+			int pos = HEADER_SIZE + i * slotSize;
+			if (buffer.get(pos + SLOT_STATE) != USED) {
+				free.add(i);
+				continue;
+			}
+			int type = buffer.get(pos + SLOT_TYPE);
+			int length = buffer.getInt(pos + SLOT_LENGTH);
+			long expiresAt = buffer.getLong(pos + SLOT_EXPIRES);
+			if (type < 0 || type >= types.length || length < 0 || length > slotSize - SLOT_TOKEN
+					|| buffer.getInt(pos + SLOT_CRC) != crc(pos, length) || (expiresAt > 0 && expiresAt <= now)) {
+				buffer.put(pos + SLOT_STATE, FREE);
+				free.add(i);
+				continue;
+			}
+			UUID tenantId = new UUID(buffer.getLong(pos + SLOT_TENANT), buffer.getLong(pos + SLOT_TENANT + 8));
+			byte[] token = new byte[length];
+			for (int b = 0; b < length; b++) {
+				token[b] = buffer.get(pos + SLOT_TOKEN + b);
+			}
+			Entry previous = tokens.put(new Key(tenantId, types[type]),
+					new Entry(new String(token, StandardCharsets.UTF_8), expiresAt, i));
+			if (previous != null) {
+				buffer.put(HEADER_SIZE + previous.slot * slotSize + SLOT_STATE, FREE);
+				free.add(previous.slot);
+			}
+		}
+		LOGGER.log(Level.INFO, "Loaded {0} tokens from {1}", new Object[] { tokens.size(), file });
+	}
+
+	/**
+	 * Checksum a slot's content: everything after the state byte except the
+	 * checksum itself
+	 */
+	private int crc(int pos, int length) {
+		CRC32 crc = new CRC32();
+		for (int b = pos + SLOT_TYPE; b < pos + SLOT_CRC; b++) {
+			crc.update(buffer.get(b));
+		}
+		for (int b = pos + SLOT_TOKEN; b < pos + SLOT_TOKEN + length; b++) {
+			crc.update(buffer.get(b));
+		}
+		return (int) crc.getValue();
+	}
+
+	@Override
+	public synchronized String getToken(UUID tenantId, KCTokenType type) {
+		Entry e = tokens.get(new Key(tenantId, type));
+		return e == null ? null : e.value;
+	}
+
+	@Override
+	public synchronized long getTokenExpiry(UUID tenantId, KCTokenType type) {
+		Entry e = tokens.get(new Key(tenantId, type));
+		return e == null ? 0 : e.expiresAt;
+	}
+
+	@Override
+	public void setToken(UUID tenantId, KCTokenType type, String value) {
+		setToken(tenantId, type, value, 0);
+	}
+
+	@Override
+	public synchronized void setToken(UUID tenantId, KCTokenType type, String value, long expiresAt) {
+		if (value == null) {
+			clearToken(tenantId, type);
+			return;
+		}
+		checkOpen();
+		Key key = new Key(tenantId, type);
+		Entry previous = tokens.get(key);
+		byte[] token = value.getBytes(StandardCharsets.UTF_8);
+
+		int slot = -1;
+		if (token.length <= slotSize - SLOT_TOKEN) {
+			slot = previous != null && previous.slot >= 0 ? previous.slot : allocate();
+			write(slot, tenantId, type, token, expiresAt);
+		} else if (previous != null && previous.slot >= 0) {
+			release(previous.slot);
+		}
+		tokens.put(key, new Entry(value, expiresAt, slot));
+	}
+
+	@Override
+	public synchronized void clearToken(UUID tenantId, KCTokenType type) {
+		checkOpen();
+		Entry previous = tokens.remove(new Key(tenantId, type));
+		if (previous != null && previous.slot >= 0) {
+			release(previous.slot);
+		}
+	}
+
+	/**
+	 * Release the file. The store cannot be used after it is closed.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel == null) {
+			return;
+		}
+		buffer.force();
+		buffer = null;
+		try {
+			lock.release();
+		} finally {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private void checkOpen() {
+		if (channel == null) {
+			throw new IllegalStateException("Token store is closed (" + file + ")");
+		}
+	}
+
+	/**
+	 * Take a free slot, or reuse the slot of the token that expires soonest
+	 */
+	private int allocate() {
+		Integer slot = free.poll();
+		if (slot != null) {
+			return slot;
+		}
+		Key victim = null;
+		long soonest = Long.MAX_VALUE;
+		for (Map.Entry<Key, Entry> e : tokens.entrySet()) {
+			Entry entry = e.getValue();
+			// Tokens with no known expiry are the first to go
+			long expiresAt = entry.expiresAt == 0 ? Long.MIN_VALUE : entry.expiresAt;
+			if (entry.slot >= 0 && expiresAt < soonest) {
+				soonest = expiresAt;
+				victim = e.getKey();
+			}
+		}
+		Entry evicted = tokens.remove(victim);
+		return evicted.slot;
+	}
+
+	private void release(int slot) {
+		buffer.put(HEADER_SIZE + slot * slotSize + SLOT_STATE, FREE);
+		free.add(slot);
+	}
+
+	/**
+	 * Write a token to a slot. The slot is marked free while it is written and
+	 * in use once it is complete.
+	 */
+	private void write(int slot, UUID tenantId, KCTokenType type, byte[] token, long expiresAt) {
+		int pos = HEADER_SIZE + slot * slotSize;
+		buffer.put(pos + SLOT_STATE, FREE);
+		buffer.put(pos + SLOT_TYPE, (byte) type.ordinal());
+		buffer.putShort(pos + 2, (short) 0);
+		buffer.putInt(pos + SLOT_LENGTH, token.length);
+		buffer.putLong(pos + SLOT_TENANT, tenantId.getMostSignificantBits());
+		buffer.putLong(pos + SLOT_TENANT + 8, tenantId.getLeastSignificantBits());
+		buffer.putLong(pos + SLOT_EXPIRES, expiresAt);
+		for (int b = 0; b < token.length; b++) {
+			buffer.put(pos + SLOT_TOKEN + b, token[b]);
+		}
+		buffer.putInt(pos + SLOT_CRC, crc(pos, token.length));
+		buffer.put(pos + SLOT_STATE, USED);
+	}
+}
@@ -0,0 +1,40 @@
+package kimono.client.impl;
+
+import kimono.client.KCMetrics;
+
+/**
+ * Holds the {@link KCMetrics} implementation that Client Kit reports to. No
+ * measurements are recorded until an implementation is installed.
+ */
+public class Metrics {
+
+	/**
+	 * Discards every measurement
+	 */
+	private static final KCMetrics NONE = new KCMetrics() {
+	};
+
+	/**
+	 * The installed implementation
+	 */
+	private static volatile KCMetrics sMetrics = NONE;
+
+	private Metrics() {
+	}
+
+	/**
+	 * Install a {@link KCMetrics} implementation
+	 * 
+	 * @param metrics The implementation, or null to stop recording measurements
+	 */
+	public static void setMetrics(KCMetrics metrics) {
+		sMetrics = metrics == null ? NONE : metrics;
+	}
+
+	/**
+	 * Get the installed {@link KCMetrics} implementation
+	 */
+	public static KCMetrics getMetrics() {
+		return sMetrics;
+	}
+}
@@ -2,20 +2,31 @@ package kimono.client.impl;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 import kimono.api.v2.interop.ApiException;
+import kimono.api.v2.interop.TenantsApi;
 import kimono.api.v2.interop.model.TenantInfo;
-import kimono.api.v2.interop.model.TenantInfoResponse;
 import kimono.api.v2.interop.model.TenantInfosResponse;
 import kimono.client.KCTenant;
 import kimono.client.KCTenantSupplier;
 import kimono.client.KimonoApiException;
 import kimono.client.KimonoApis;
+import kimono.client.util.ThreadUtils;
 
 /**
  * Default {@link KCTenantSupplier} implementation supplies {@link TenantInfo}
@@ -24,6 +35,10 @@ import kimono.client.KimonoApis;
  */
 public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTenantSupplier {
 
+	private static final Logger LOGGER = Logger.getLogger(TenantSupplier.class.getName());
+
+	public static final int DEFAULT_LOOKUP_CONCURRENCY = 8;
+
 	/**
 	 * The UUIDs of Accounts to limit results to.
 	 */
@@ -39,11 +54,59 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 	 */
 	private Set<UUID> forTenantIds = new HashSet<>();
 
+	/**
+	 * The maximum number of tenants to look up at once when specific tenants are
+	 * requested
+	 * @see #setLookupConcurrency(int)
+	 */
+	private int lookupConcurrency = DEFAULT_LOOKUP_CONCURRENCY;
+
 	/**
 	 * Are more pages available after this page?
 	 */
 	private boolean morePages;
 
+	/**
+	 * How long in milliseconds the tenant registry is used before it is refreshed;
+	 * 0 to list tenants on every {@link #reset()}
+	 * @see #setCacheTtl(long, TimeUnit)
+	 */
+	private long cacheTtl = 0;
+
+	/**
+	 * Every tenant, as last listed. Null until first listed or after
+	 * {@link #invalidate()}.
+	 */
+	private volatile List<KCTenant> registry;
+
+	/**
+	 * When {@link #registry} was listed
+	 */
+	private volatile long listedAt;
+
+	/**
+	 * Incremented by {@link #invalidate()}, so a listing that was already
+	 * running does not publish tenants listed before the invalidation. Guarded
+	 * by {@code this}.
+	 */
+	private long generation;
+
+	/**
+	 * Is a background refresh of the registry running?
+	 */
+	private AtomicBoolean refreshing = new AtomicBoolean();
+
+	/**
+	 * Runs background refreshes. Created when caching is enabled.
+	 */
+	private ExecutorService refresher;
+
+	/**
+	 * Looks up specific tenants. Created on first use and reused; its threads
+	 * exit when idle.
+	 */
+	private ThreadPoolExecutor lookups;
+
 	/**
 	 * Return only tenants of specific Accounts
 	 */
@@ -83,8 +146,117 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 		return this;
 	}
 
+	/**
+	 * Set how many tenants are looked up at once when specific tenants are
+	 * requested with {@link #forTenants(Set)}
+	 * 
+	 * @param lookupConcurrency The maximum number of concurrent lookups; 1 to look
+	 *                          them up one at a time
+	 */
+	public synchronized TenantSupplier setLookupConcurrency(int lookupConcurrency) {
+		this.lookupConcurrency = lookupConcurrency;
+		if (lookups != null) {
+			lookups.shutdown();
+			lookups = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Cache the list of tenants rather than listing them from the Tenants API on
+	 * every {@link #reset()}. The cached registry is used until it is older than
+	 * {@code ttl}, when it is refreshed in the background while the stale
+	 * registry continues to be used. The registry is only listed in the
+	 * foreground the first time and after {@link #invalidate()}.
+	 * 
+	 * @param ttl  How long to use the registry before refreshing it; 0 (the
+	 *             default) to list tenants on every reset
+	 * @param unit The unit of {@code ttl}
+	 */
+	public synchronized TenantSupplier setCacheTtl(long ttl, TimeUnit unit) {
+		cacheTtl = unit.toMillis(ttl);
+		if (cacheTtl > 0 && refresher == null) {
+			refresher = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					ThreadUtils.newThreadFactory("kimono-tenants"));
+		}
+		return this;
+	}
+
+	@Override
+	public synchronized void invalidate() {
+		generation++;
+		registry = null;
+	}
+
 	@Override
 	protected List<KCTenant> fetch(int p) {
+		if (cacheTtl > 0) {
+			return cachedTenants();
+		}
+		AtomicBoolean more = new AtomicBoolean();
+		List<KCTenant> tenants = list(p, more, new AtomicBoolean());
+		morePages = more.get();
+		return tenants;
+	}
+
+	/**
+	 * Get every tenant from the registry, listing them if there is no registry
+	 * and refreshing it in the background if it has expired
+	 */
+	private List<KCTenant> cachedTenants() {
+		List<KCTenant> tenants = registry;
+		if (tenants == null) {
+			tenants = listAll();
+		} else if (System.currentTimeMillis() - listedAt >= cacheTtl && refreshing.compareAndSet(false, true)) {
+			refresher.execute(() -> {
+				try {
+					listAll();
+				} catch (RuntimeException ex) {
+					LOGGER.log(Level.WARNING, "Error refreshing tenants; using the tenants previously listed", ex);
+				} finally {
+					refreshing.set(false);
+				}
+			});
+		}
+		return tenants;
+	}
+
+	/**
+	 * List every page of tenants and record them as the registry, unless the
+	 * registry was invalidated while they were listed
+	 */
+	private List<KCTenant> listAll() {
+		long started = System.currentTimeMillis();
+		long listing;
+		synchronized (this) {
+			listing = generation;
+		}
+		List<KCTenant> tenants = new ArrayList<>();
+		AtomicBoolean more = new AtomicBoolean();
+		AtomicBoolean partial = new AtomicBoolean();
+		int p = 0;
+		do {
+			tenants.addAll(list(p++, more, partial));
+		} while (more.get());
+		tenants = Collections.unmodifiableList(tenants);
+		synchronized (this) {
+			// Tenants that could not be looked up are listed again next time
+			if (listing == generation && !partial.get()) {
+				registry = tenants;
+				listedAt = started;
+			}
+		}
+		return tenants;
+	}
+
+	/**
+	 * List a page of tenants from the Tenants API
+	 * 
+	 * @param p       The page
+	 * @param more    Set to whether more pages are available
+	 * @param partial Set if any specific tenant could not be looked up
+	 */
+	private List<KCTenant> list(int p, AtomicBoolean more, AtomicBoolean partial) {
 		try {
 			final List<KCTenant> tenants = new ArrayList<>();
 
@@ -94,7 +266,7 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 				List<String> integrations = forIntegrations.stream().collect(Collectors.toList());
 				TenantInfosResponse rsp = KimonoApis.getTenantsApi(Credentials.forApiKey()).listInteropTenants(null,
 						integrations, p, null);
-				morePages = rsp.getPaging().getNext() != null;
+				more.set(rsp.getPaging().getNext() != null);
 
 				// Convert to a list of KCTenant
 				rsp.getData().forEach(ti -> tenants.add(wrap(ti)));
@@ -110,11 +282,8 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 
 			} else {
 				// Otherwise fetch specific tenants by ID
-				morePages = false;
-				for (UUID id : forTenantIds) {
-					TenantInfoResponse rsp = KimonoApis.getTenantsApi(Credentials.forApiKey()).findInteropTenant(id);
-					tenants.add(wrap(rsp.getData()));
-				}
+				more.set(false);
+				tenants.addAll(find(forTenantIds, partial));
 			}
 
 			return tenants;
@@ -123,6 +292,64 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 		}
 	}
 
+	/**
+	 * Find specific tenants by ID, up to {@link #lookupConcurrency} at a time.
+	 * A tenant that cannot be found is logged and left out; an exception is
+	 * thrown only if none of the tenants can be found.
+	 * 
+	 * @param ids     The tenant IDs
+	 * @param partial Set if any tenant could not be found
+	 * @return The tenants that were found, in no particular order
+	 */
+	private List<KCTenant> find(Set<UUID> ids, AtomicBoolean partial) {
+		// One client is shared by every lookup
+		TenantsApi api = KimonoApis.getTenantsApi(Credentials.forApiKey());
+		ExecutorService executor = lookupExecutor();
+		List<CompletableFuture<TenantInfo>> pending = new ArrayList<>();
+		for (UUID id : ids) {
+			pending.add(CompletableFuture.supplyAsync(() -> {
+				try {
+					return api.findInteropTenant(id).getData();
+				} catch (ApiException ex) {
+					throw new KimonoApiException(ex);
+				}
+			}, executor));
+		}
+
+		List<KCTenant> tenants = new ArrayList<>();
+		Throwable failure = null;
+		Iterator<UUID> it = ids.iterator();
+		for (CompletableFuture<TenantInfo> lookup : pending) {
+			UUID id = it.next();
+			try {
+				tenants.add(wrap(ThreadUtils.await(lookup)));
+			} catch (RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Cannot find tenant " + id + "; it will be looked up again next time", ex);
+				failure = ex;
+			}
+		}
+		if (failure != null) {
+			partial.set(true);
+			if (tenants.isEmpty()) {
+				throw ThreadUtils.rethrow(failure);
+			}
+		}
+		return tenants;
+	}
+
+	/**
+	 * Get the executor that looks up specific tenants, creating it if needed
+	 */
+	private synchronized ExecutorService lookupExecutor() {
+		if (lookups == null) {
+			int threads = Math.max(1, lookupConcurrency);
+			lookups = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					ThreadUtils.newThreadFactory("kimono-tenant-lookup"));
+			lookups.allowCoreThreadTimeOut(true);
+		}
+		return lookups;
+	}
+
 	/**
 	 * Create a {@link KCTenant} implementation to wrap a {@link TenantInfo}
 	 */
@@ -132,6 +359,7 @@ public class TenantSupplier extends AbstractSupplier<KCTenant> implements KCTena
 
 	@Override
 	protected boolean hasMorePages() {
-		return morePages;
+		// The registry is supplied as a single page
+		return cacheTtl <= 0 && morePages;
 	}
 }
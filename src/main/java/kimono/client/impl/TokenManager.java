@@ -0,0 +1,161 @@
+package kimono.client.impl;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+import kimono.client.util.AuthenticationUtils;
+import kimono.client.util.ThreadUtils;
+
+/**
+ * Obtains OAuth2 Bearer tokens for {@link Credentials} and keeps them fresh.
+ * <p>
+ *
+ * Tokens are recorded in the token store along with their expiry time. A token
+ * that is within the refresh margin of expiring is still returned, but a new
+ * token is requested in the background so callers only block when there is no
+ * token or it has already expired. Token requests are single-flighted per
+ * tenant: concurrent callers for the same tenant share one request to the
+ * token endpoint, and each caller's {@link Credentials} is updated with the
+ * token it receives.
+ */
+public class TokenManager {
+
+	private static final Logger LOGGER = Logger.getLogger(TokenManager.class.getName());
+
+	/**
+	 * Refresh a token in the background once it is due to expire within this many
+	 * milliseconds
+	 */
+	private static long sRefreshMargin = TimeUnit.MINUTES.toMillis(5);
+
+	/**
+	 * A token and the time it expires
+	 */
+	private static final class Grant {
+		final String token;
+		final long expiresAt;
+
+		Grant(String token, long expiresAt) {
+			this.token = token;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * Token requests in progress, by tenant ID (or Client ID for Account
+	 * Authentication)
+	 */
+	private static final ConcurrentMap<Object, CompletableFuture<Grant>> sInFlight = new ConcurrentHashMap<>();
+
+	/**
+	 * Runs background refreshes, up to four at a time. With an unbounded queue
+	 * a pool only grows to its core size, so the core size is the limit and
+	 * core threads are allowed to exit when idle.
+	 */
+	private static final ExecutorService sRefresher = newRefresher();
+
+	private TokenManager() {
+	}
+
+	private static ExecutorService newRefresher() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(4, 4, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				ThreadUtils.newThreadFactory("kimono-token"));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Set how long before a token expires it is refreshed in the background
+	 *
+	 * @param margin The refresh margin
+	 * @param unit   The unit of {@code margin}
+	 */
+	public static void setRefreshMargin(long margin, TimeUnit unit) {
+		sRefreshMargin = unit.toMillis(margin);
+	}
+
+	/**
+	 * Get a valid access token for a set of credentials, requesting a new token
+	 * if there is none or it has expired
+	 *
+	 * @param cred The credentials
+	 * @return The access token
+	 */
+	public static String getAccessToken(Credentials cred) {
+		String token = cred.getAccessToken();
+		long expiresAt = cred.getAccessTokenExpiry();
+		long now = System.currentTimeMillis();
+
+		if (token != null && (expiresAt == 0 || now < expiresAt - sRefreshMargin)) {
+			return token;
+		}
+		if (token != null && now < expiresAt) {
+			// Still valid; refresh ahead of expiry without making the caller wait
+			refresh(cred, true);
+			return token;
+		}
+		return ThreadUtils.await(refresh(cred, false)).token;
+	}
+
+	/**
+	 * Request a new token unless a request for the same tenant is already in
+	 * progress
+	 *
+	 * @param cred       The credentials
+	 * @param background Request the token on a background thread rather than the
+	 *                   calling thread
+	 * @return Completes with the new token once {@code cred} has been updated
+	 */
+	private static CompletableFuture<Grant> refresh(Credentials cred, boolean background) {
+		Object key = cred.getTenantId() != null ? cred.getTenantId() : cred.getUsername();
+		CompletableFuture<Grant> future = new CompletableFuture<>();
+		CompletableFuture<Grant> existing = sInFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			// The request already in progress stores the token for the tenant; these
+			// credentials only need to pick it up
+			return existing.thenApply(grant -> {
+				cred.useAccessToken(grant.token, grant.expiresAt);
+				return grant;
+			});
+		}
+		Runnable request = () -> {
+			try {
+				future.complete(authorize(cred));
+			} catch (Exception ex) {
+				if (background) {
+					LOGGER.log(Level.WARNING, "Failed to refresh access token for " + cred.getUsername(), ex);
+				}
+				future.completeExceptionally(ex);
+			} finally {
+				sInFlight.remove(key, future);
+			}
+		};
+		if (background) {
+			sRefresher.execute(request);
+		} else {
+			request.run();
+		}
+		return future;
+	}
+
+	private static Grant authorize(Credentials cred) throws IOException {
+		long requested = System.currentTimeMillis();
+		JSONObject json = AuthenticationUtils.authorize(cred);
+		String token = json.getString("access_token");
+		// Measure expiry from when the token was requested to allow for latency
+		long expiresIn = json.optLong("expires_in", 0);
+		long expiresAt = expiresIn > 0 ? requested + TimeUnit.SECONDS.toMillis(expiresIn) : 0;
+		cred.setAccessToken(token, expiresAt);
+		return new Grant(token, expiresAt);
+	}
+}
@@ -2,12 +2,30 @@ package kimono.client.impl.csv;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.json.JSONObject;
 
 import kimono.client.KCDriverProperties;
@@ -16,7 +34,9 @@ import kimono.client.KCTenant;
 import kimono.client.KCTopic;
 import kimono.client.csv.KCFile;
 import kimono.client.csv.KCFileManager;
+import kimono.client.impl.Metrics;
 import kimono.client.tasks.KCTask;
+import kimono.client.util.ThreadUtils;
 
 /**
  * Abstract base class implementation of {@link KCFileManager}
@@ -25,6 +45,26 @@ public abstract class AbstractFileManager implements KCFileManager, AutoCloseabl
 
 	public static final String OPT_ARCHIVE_FILES = "files.archive";
 	
+	/**
+	 * The number of archive generations to keep (default 1)
+	 */
+	public static final String OPT_ARCHIVE_GENERATIONS = "files.archive.generations";
+	
+	/**
+	 * Compress archived files with gzip in the background; a generation is
+	 * published once its files are compressed (default false)
+	 */
+	public static final String OPT_ARCHIVE_COMPRESS = "files.archive.compress";
+	
+	/**
+	 * The maximum total size in bytes of a tenant's archive; older generations
+	 * are removed to stay within it, but the latest is always kept (default 0,
+	 * no limit)
+	 */
+	public static final String OPT_ARCHIVE_MAX_BYTES = "files.archive.max_bytes";
+	
+	private static final Logger LOGGER = Logger.getLogger(AbstractFileManager.class.getName());
+	
 	/**
 	 * Driver properties
 	 */
@@ -62,6 +102,19 @@ public abstract class AbstractFileManager implements KCFileManager, AutoCloseabl
 	 */
 	private KCFileManager.Supplier fileSupplier;
 	
+	/**
+	 * The last background archive job for this tenant. Each job is chained to
+	 * the previous one so a tenant's archive is only ever changed by one job at
+	 * a time.
+	 */
+	private CompletableFuture<Void> archiveJobs = CompletableFuture.completedFuture(null);
+	
+	/**
+	 * Runs this manager's archive jobs off the commit path. Created when first
+	 * needed; its thread exits when idle and it is shut down by {@link #close()}.
+	 */
+	private ExecutorService archiver;
+	
 	public AbstractFileManager( KCTenant tenant, KCDriverProperties props ) {
 		this.props = props;
 		this.tenant = tenant;
@@ -147,18 +200,44 @@ public abstract class AbstractFileManager implements KCFileManager, AutoCloseabl
 	
 	@Override
 	public void write(KCTask task) throws IOException {
+		long start = System.nanoTime();
 		KCFile file = getFileForTopic(task,true);
 		if( file != null ) {
 			// Write mapped task attributes to the file
 			JSONObject attrs = task.getAttributes();
 			KCMapper mapper = getMapper(task.getTopic());
 			file.write(task,mapper == null ? attrs : mapper.map(task, attrs));
+			Metrics.getMetrics().written(tenant, task.getTopic(), System.nanoTime() - start);
 		}
 	}
 	
 	@Override
 	public void close() throws IOException {
 		files.values().forEach(f->f.close());
+		try {
+			awaitArchive();
+		} finally {
+			if( archiver != null ) {
+				archiver.shutdown();
+				archiver = null;
+			}
+		}
+	}
+	
+	/**
+	 * Wait for background compression and pruning of the archive to finish. Once
+	 * this returns, {@link #getArchiveFolder()} is the generation of the last
+	 * commit.
+	 */
+	public void awaitArchive() throws IOException {
+		try {
+			archiveJobs.get();
+		} catch( InterruptedException ie ) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted waiting for archive",ie);
+		} catch( ExecutionException ee ) {
+			throw new IOException("Error maintaining archive",ee.getCause());
+		}
 	}
 	
 	@Override
@@ -170,48 +249,265 @@ public abstract class AbstractFileManager implements KCFileManager, AutoCloseabl
 		outputFolder = folder;
 	}
 	
-	public File getArchiveFolder() {
+	/**
+	 * Get the folder that holds archive generations. Each commit moves the
+	 * committed files into a new generation: a sub-folder named with an
+	 * increasing number.
+	 */
+	public File getArchiveRoot() {
 		return new File(getFolder(),"archive");
 	}
 	
+	/**
+	 * Get the folder holding the most recently committed files: the latest
+	 * archive generation, or the archive root if nothing has been committed.
+	 * With {@link #OPT_ARCHIVE_COMPRESS}, a generation appears only once its
+	 * files are compressed; use {@link #awaitArchive()} to wait for the last
+	 * commit to appear.
+	 */
+	public File getArchiveFolder() {
+		File root = getArchiveRoot();
+		long gen = latestGeneration(root);
+		return gen < 0 ? root : new File(root,Long.toString(gen));
+	}
+	
 	@Override
 	public void commitFiles() throws IOException {
 		
-		// Ask each file to commit
+		long start = System.nanoTime();
+
+		// Ask each file to commit, then close it so rows received after this 
+		// commit start a new set of files rather than following the committed
+		// files into the archive
 		for( KCFile file : files.values() ) {
 			file.commit();
 		}
+		files.values().forEach(f->f.close());
+		files.clear();
 
-		// Copy each file to the archive folder
+		// Move each file to a new archive generation
 		archiveFiles();
 		
 		// Delete files so the next set of files received is not appended to 
 		// the existing set
 		deleteFiles();
+		
+		Metrics.getMetrics().committed(tenant, System.nanoTime() - start);
 	}
 	
+	/**
+	 * Move the files in the output folder to a new archive generation. Files are
+	 * moved into a staging folder which is then renamed to the generation number,
+	 * so a generation only ever appears complete. Renames cost the same however
+	 * large the files are; a file is only copied if the archive is on a different
+	 * file system.
+	 * <p>
+	 * 
+	 * Older generations are then removed according to the
+	 * {@link #OPT_ARCHIVE_GENERATIONS} and {@link #OPT_ARCHIVE_MAX_BYTES}
+	 * options. With {@link #OPT_ARCHIVE_COMPRESS}, the staged files are gzipped,
+	 * the generation published and older generations removed on a background
+	 * thread, after this method returns.
+	 */
 	protected void archiveFiles() throws IOException {
 		
-		File archiveFolder = getArchiveFolder();
-		if( archiveFolder.exists() ) {
-			try {
-				FileUtils.deleteDirectory(archiveFolder);
-			} catch( IOException ioe ) {
-				throw new IOException("Error clearing archive folder ("+archiveFolder.getAbsolutePath()+")",ioe);
-			}
-		} else {
-			archiveFolder.mkdirs();
+		File root = getArchiveRoot();
+		root.mkdirs();
+		if( archiveJobs.isDone() ) {
+			// No background job is still working in a staging folder
+			clearStaleArchives(root);
+		}
+		
+		long gen = nextGeneration(root);
+		File staging = new File(root,gen+".tmp");
+		if( !staging.mkdirs() ) {
+			throw new IOException("Error creating archive folder ("+staging.getAbsolutePath()+")");
 		}
 		
 		for( File srcFile : outputFolder.listFiles() ) {
 			try {
 				if( srcFile.isFile() ) {
-					FileUtils.copyFile(srcFile, new File(archiveFolder,srcFile.getName()));
+					moveFile(srcFile, new File(staging,srcFile.getName()));
 				}
 			} catch( IOException ioe ) {
 				throw new IOException("Error archiving file ("+srcFile+")",ioe);
 			}
 		}
+		
+		if( getBooleanOption(OPT_ARCHIVE_COMPRESS) ) {
+			archiveJobs = archiveJobs.handle((v,ex)->null).thenRunAsync(()->{
+				try {
+					compressArchive(staging);
+				} catch( IOException ioe ) {
+					LOGGER.log(Level.WARNING,"Error compressing archive ("+staging+"); keeping it uncompressed",ioe);
+				}
+				try {
+					publishArchive(root, staging, gen);
+				} catch( IOException ioe ) {
+					LOGGER.log(Level.SEVERE,"Error publishing archive ("+staging+")",ioe);
+					throw new UncheckedIOException(ioe);
+				}
+			},archiver());
+		} else {
+			publishArchive(root, staging, gen);
+		}
+	}
+	
+	/**
+	 * Rename a staging folder to its generation number, then remove older
+	 * generations
+	 */
+	private void publishArchive( File root, File staging, long gen ) throws IOException {
+		Files.move(staging.toPath(), new File(root,Long.toString(gen)).toPath(), StandardCopyOption.ATOMIC_MOVE);
+		pruneArchives(root, gen);
+	}
+	
+	private ExecutorService archiver() {
+		if( archiver == null ) {
+			archiver = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+					ThreadUtils.newThreadFactory("kimono-archive"));
+		}
+		return archiver;
+	}
+	
+	/**
+	 * Gzip each file in an archive generation. Each file is compressed to a
+	 * temporary file that is renamed to {@code name.gz} before the original is
+	 * deleted, so an interrupted compression never loses a file.
+	 */
+	protected void compressArchive( File dir ) throws IOException {
+		File[] files = dir.listFiles(f->f.isFile() && !f.getName().endsWith(".gz") && !f.getName().endsWith(".gz.tmp"));
+		if( files == null ) {
+			return;
+		}
+		for( File src : files ) {
+			File tmp = new File(dir,src.getName()+".gz.tmp");
+			try( InputStream in = Files.newInputStream(src.toPath());
+				OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp.toPath()),64*1024) ) {
+				byte[] buf = new byte[64*1024];
+				int n;
+				while( (n = in.read(buf)) != -1 ) {
+					out.write(buf,0,n);
+				}
+			}
+			moveFile(tmp, new File(dir,src.getName()+".gz"));
+			Files.delete(src.toPath());
+		}
+	}
+	
+	/**
+	 * Move a file, atomically where the file system allows it. Falls back to a
+	 * copy and delete when the destination is on another file system.
+	 */
+	protected void moveFile( File src, File dest ) throws IOException {
+		try {
+			Files.move(src.toPath(), dest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch( AtomicMoveNotSupportedException ex ) {
+			Files.move(src.toPath(), dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Remove the oldest archive generations until no more than
+	 * {@link #OPT_ARCHIVE_GENERATIONS} remain and they fit within
+	 * {@link #OPT_ARCHIVE_MAX_BYTES}. Generation {@code latest} is always kept.
+	 * 
+	 * @param root The archive root
+	 * @param latest The generation just committed
+	 */
+	protected void pruneArchives( File root, long latest ) throws IOException {
+		int keep = Math.max(1, getIntOption(OPT_ARCHIVE_GENERATIONS, 1));
+		long maxBytes = getLongOption(OPT_ARCHIVE_MAX_BYTES, 0);
+		
+		// Newest first
+		List<File> gens = listGenerations(root).stream().filter(d->generation(d) <= latest)
+				.sorted((a,b)->Long.compare(generation(b),generation(a))).collect(Collectors.toList());
+		long bytes = 0;
+		for( int i = 0; i < gens.size(); i++ ) {
+			File dir = gens.get(i);
+			bytes += FileUtils.sizeOfDirectory(dir);
+			if( i > 0 && (i >= keep || (maxBytes > 0 && bytes > maxBytes)) ) {
+				FileUtils.deleteDirectory(dir);
+			}
+		}
+	}
+	
+	private boolean getBooleanOption( String name ) {
+		String value = props.getOption(name);
+		return value != null && !value.equalsIgnoreCase("false");
+	}
+	
+	private int getIntOption( String name, int defaultValue ) {
+		String value = props.getOption(name);
+		return StringUtils.isEmpty(value) ? defaultValue : Integer.parseInt(value);
+	}
+	
+	private long getLongOption( String name, long defaultValue ) {
+		String value = props.getOption(name);
+		return StringUtils.isEmpty(value) ? defaultValue : Long.parseLong(value);
+	}
+	
+	/**
+	 * Remove staging folders left by a commit that did not finish, and files
+	 * archived directly in the archive root by earlier versions
+	 */
+	private void clearStaleArchives( File root ) throws IOException {
+		File[] stale = root.listFiles(f->f.isFile() || f.getName().endsWith(".tmp"));
+		if( stale != null ) {
+			for( File f : stale ) {
+				try {
+					FileUtils.forceDelete(f);
+				} catch( IOException ioe ) {
+					throw new IOException("Error clearing archive folder ("+f.getAbsolutePath()+")",ioe);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the archive generation folders in the archive root
+	 */
+	protected List<File> listGenerations( File root ) {
+		File[] dirs = root.listFiles(f->f.isDirectory() && generation(f) >= 0);
+		return dirs == null ? Collections.emptyList() : Arrays.asList(dirs);
+	}
+	
+	private long latestGeneration( File root ) {
+		return listGenerations(root).stream().mapToLong(AbstractFileManager::generation).max().orElse(-1);
+	}
+	
+	/**
+	 * Get the number of the next generation, after every generation that has
+	 * been published or is still being staged
+	 */
+	private long nextGeneration( File root ) {
+		long latest = -1;
+		String[] names = root.list();
+		if( names != null ) {
+			for( String name : names ) {
+				latest = Math.max(latest, generation(StringUtils.removeEnd(name,".tmp")));
+			}
+		}
+		return latest + 1;
+	}
+	
+	/**
+	 * Get the generation number of an archive folder
+	 * @return The generation, or -1 if the folder is not a generation
+	 */
+	private static long generation( File dir ) {
+		return generation(dir.getName());
+	}
+	
+	private static long generation( String name ) {
+		if( name.isEmpty() || !StringUtils.isNumeric(name) ) {
+			return -1;
+		}
+		try {
+			return Long.parseLong(name);
+		} catch( NumberFormatException ex ) {
+			return -1;
+		}
 	}
 	
 	protected void deleteFiles() {
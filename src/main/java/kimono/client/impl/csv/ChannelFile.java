@@ -0,0 +1,332 @@
+package kimono.client.impl.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.json.JSONObject;
+
+import kimono.client.KCTopic;
+import kimono.client.csv.KCFile;
+import kimono.client.csv.KCFileManager;
+import kimono.client.csv.KCRowFormatter;
+import kimono.client.tasks.KCTask;
+import kimono.client.util.ThreadUtils;
+
+/**
+ * A {@link KCFile} that appends rows to a file through a {@link FileChannel}.
+ * Rows are encoded straight into a large direct buffer and written to the
+ * channel only when a flush threshold is reached, so a bulk load costs one
+ * system call per buffer rather than one per row. {@link #commit()} flushes the
+ * buffer and forces the file to disk. A file holds its buffer only while it is
+ * open; buffers of the default size are pooled and reused by other files.
+ * <p>
+ * 
+ * A buffer is flushed when it is full, and optionally after a number of rows or
+ * when its oldest row has waited longer than a maximum delay (see
+ * {@link #setFlushThresholds(int, long, TimeUnit)}). The delay is also checked
+ * in the background, so a file that stops receiving rows is still flushed on
+ * time. Rows written since the last flush are lost if the process exits
+ * without {@link #commit()} or {@link #close()}.
+ */
+public class ChannelFile implements KCFile {
+
+	/**
+	 * The default buffer size: 1 MiB
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private static final Logger LOGGER = Logger.getLogger(ChannelFile.class.getName());
+
+	/**
+	 * Idle buffers of the default size, shared by all files
+	 */
+	private static final BlockingQueue<ByteBuffer> sBuffers = new ArrayBlockingQueue<>(16);
+
+	/**
+	 * Checks the maximum delay of open files. Its thread exits when no file has
+	 * a maximum delay.
+	 */
+	private static final ScheduledThreadPoolExecutor sFlusher = new ScheduledThreadPoolExecutor(1,
+			ThreadUtils.newThreadFactory("kimono-flush"));
+	static {
+		sFlusher.setKeepAliveTime(30, TimeUnit.SECONDS);
+		sFlusher.allowCoreThreadTimeOut(true);
+		sFlusher.setRemoveOnCancelPolicy(true);
+	}
+
+	private File file;
+
+	private String groupId;
+
+	private KCTopic topic;
+
+	private KCRowFormatter formatter;
+
+	private String lineSeparator = "\r\n";
+
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+	/**
+	 * Flush after this many rows; 0 to flush only when the buffer is full
+	 */
+	private int maxRows = 0;
+
+	/**
+	 * Flush once the oldest buffered row has waited this long; 0 to flush only
+	 * when the buffer is full
+	 */
+	private long maxDelayMs = 0;
+
+	private FileChannel channel;
+
+	/**
+	 * Held while the file is open
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Checks the maximum delay while the file is open
+	 */
+	private ScheduledFuture<?> flushTimer;
+
+	private CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+	/**
+	 * Rows in the buffer
+	 */
+	private int rows;
+
+	/**
+	 * When the first row in the buffer was written
+	 */
+	private long firstRow;
+
+	/**
+	 * @param file      The file to append to
+	 * @param groupId   The group the file belongs to
+	 * @param topic     The topic of the rows in the file
+	 * @param formatter Formats each row
+	 */
+	public ChannelFile(File file, String groupId, KCTopic topic, KCRowFormatter formatter) {
+		this.file = file;
+		this.groupId = groupId;
+		this.topic = topic;
+		this.formatter = formatter;
+	}
+
+	/**
+	 * Create a {@link KCFileManager.Supplier} that writes each topic to
+	 * {@code name.csv} in a File Manager's folder, where {@code name} is the
+	 * topic name
+	 * 
+	 * @param manager   The File Manager
+	 * @param formatter Formats each row
+	 */
+	public static KCFileManager.Supplier supplier(KCFileManager manager, KCRowFormatter formatter) {
+		return (groupId, topic) -> new ChannelFile(new File(manager.getFolder(), topic.getName() + ".csv"), groupId,
+				topic, formatter);
+	}
+
+	/**
+	 * Set the size of the direct buffer rows are encoded into. Takes effect the
+	 * next time the file is opened.
+	 * 
+	 * @param bytes The buffer size; defaults to {@link #DEFAULT_BUFFER_SIZE}
+	 */
+	public void setBufferSize(int bytes) {
+		if (bytes < 1024) {
+			throw new IllegalArgumentException("Buffer size must be at least 1024 bytes");
+		}
+		bufferSize = bytes;
+	}
+
+	/**
+	 * Flush the buffer before it is full
+	 * 
+	 * @param maxRows  Flush after this many rows; 0 for no limit
+	 * @param maxDelay Flush when a row written has waited at least this long; 0
+	 *                 for no limit
+	 * @param unit     The unit of {@code maxDelay}
+	 */
+	public void setFlushThresholds(int maxRows, long maxDelay, TimeUnit unit) {
+		this.maxRows = maxRows;
+		this.maxDelayMs = unit.toMillis(maxDelay);
+	}
+
+	/**
+	 * Set the line separator written after each row
+	 * 
+	 * @param separator The separator; defaults to CRLF as used by CSV
+	 */
+	public void setLineSeparator(String separator) {
+		lineSeparator = separator;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	@Override
+	public String getGroupId() {
+		return groupId;
+	}
+
+	@Override
+	public KCTopic getTopic() {
+		return topic;
+	}
+
+	@Override
+	public synchronized void open() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		buffer = bufferSize == DEFAULT_BUFFER_SIZE ? sBuffers.poll() : null;
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(bufferSize);
+		}
+		rows = 0;
+		if (maxDelayMs > 0) {
+			long period = Math.max(1, maxDelayMs / 2);
+			flushTimer = sFlusher.scheduleWithFixedDelay(this::flushIfDue, period, period, TimeUnit.MILLISECONDS);
+		}
+		if (channel.size() == 0) {
+			String header = formatter.header();
+			if (header != null) {
+				append(header);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void write(KCTask task, JSONObject attrs) throws IOException {
+		if (channel == null) {
+			throw new IOException("File is not open (" + file + ")");
+		}
+		String row = formatter.format(task, attrs);
+		if (row == null) {
+			return;
+		}
+		append(row);
+		if ((maxRows > 0 && rows >= maxRows)
+				|| (maxDelayMs > 0 && System.currentTimeMillis() - firstRow >= maxDelayMs)) {
+			flush();
+		}
+	}
+
+	@Override
+	public synchronized void commit() throws IOException {
+		if (channel != null) {
+			flush();
+			channel.force(true);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (channel == null) {
+			return;
+		}
+		if (flushTimer != null) {
+			flushTimer.cancel(false);
+			flushTimer = null;
+		}
+		// The channel is closed even if the flush fails, and a failure to close
+		// it is suppressed by the flush failure
+		try (FileChannel closing = channel) {
+			flush();
+		} catch (IOException ioe) {
+			throw new UncheckedIOException("Error closing file (" + file + ")", ioe);
+		} finally {
+			channel = null;
+			if (buffer.capacity() == DEFAULT_BUFFER_SIZE) {
+				buffer.clear();
+				sBuffers.offer(buffer);
+			}
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Get the number of idle buffers in the pool
+	 */
+	static int pooledBuffers() {
+		return sBuffers.size();
+	}
+
+	/**
+	 * Flush the buffer if its oldest row has waited longer than the maximum delay
+	 */
+	private synchronized void flushIfDue() {
+		if (channel == null || rows == 0 || System.currentTimeMillis() - firstRow < maxDelayMs) {
+			return;
+		}
+		try {
+			flush();
+		} catch (IOException ioe) {
+			LOGGER.log(Level.WARNING, "Error flushing file (" + file + ")", ioe);
+		}
+	}
+
+	/**
+	 * Encode a row and its line separator into the buffer, writing the buffer to
+	 * the channel whenever it fills
+	 */
+	private void append(String row) throws IOException {
+		if (rows++ == 0) {
+			firstRow = System.currentTimeMillis();
+		}
+		encode(CharBuffer.wrap(row));
+		encode(CharBuffer.wrap(lineSeparator));
+	}
+
+	private void encode(CharBuffer chars) throws IOException {
+		encoder.reset();
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isOverflow()) {
+				drain();
+			} else if (result.isUnderflow()) {
+				break;
+			} else {
+				result.throwException();
+			}
+		}
+		while (encoder.flush(buffer).isOverflow()) {
+			drain();
+		}
+	}
+
+	/**
+	 * Write the buffer to the channel
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private void flush() throws IOException {
+		drain();
+		rows = 0;
+	}
+}
@@ -5,15 +5,17 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import org.apache.http.HttpStatus;
-import org.json.JSONArray;
-import org.json.JSONObject;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import kimono.client.KCTenant;
@@ -21,16 +23,19 @@ import kimono.client.KimonoApiException;
 import kimono.client.KimonoApis;
 import kimono.client.impl.AbstractSupplier;
 import kimono.client.impl.Credentials;
+import kimono.client.impl.Metrics;
+import kimono.client.impl.TokenManager;
 import kimono.client.tasks.KCTask;
 import kimono.client.tasks.KCTaskAck;
 import kimono.client.tasks.KCTaskAck.Status;
 import kimono.client.tasks.KCTaskApi;
-import kimono.client.util.AuthenticationUtils;
+import kimono.client.tasks.KCTaskResult;
 import kong.unirest.GetRequest;
 import kong.unirest.HttpRequest;
 import kong.unirest.HttpRequestWithBody;
 import kong.unirest.HttpResponse;
 import kong.unirest.JsonNode;
+import kong.unirest.RawResponse;
 import kong.unirest.Unirest;
 
 public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCTaskApi {
@@ -53,6 +58,32 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 	 */
 	private boolean readOnly = false;
 
+	/**
+	 * Are pages fetched ahead of the consumer?
+	 * @see #setPrefetch(int)
+	 */
+	private volatile boolean prefetching = false;
+
+	/**
+	 * Acknowledge several tasks in one request?
+	 * @see #setBulkAck(boolean)
+	 */
+	private boolean bulkAck = false;
+
+	/**
+	 * Bulk acknowledgement URLs the server has responded it does not support.
+	 * Once recorded, {@link #ackTasks(List)} acknowledges tasks one at a time.
+	 */
+	private static final Set<String> sBulkAckUnsupported = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Produces a URL for a tenant's credentials
+	 */
+	@FunctionalInterface
+	protected interface UrlFactory {
+		URL get(Credentials cred) throws MalformedURLException;
+	}
+
 	/**
 	 * Construct a {@link KCTaskApi} implementation to retrieve tasks for a specific
 	 * tenant
@@ -64,11 +95,20 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 	}
 
 	protected URL getTasksURL(Credentials cred) throws MalformedURLException {
-		return new URL(KimonoApis.getInteropDataClient(cred).getBasePath() + "/tasks/admin");
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks/admin");
 	}
 
 	protected URL getTaskAckURL(Credentials cred, UUID id) throws MalformedURLException {
-		return new URL(KimonoApis.getInteropDataClient(cred).getBasePath() + "/tasks/admin/" + id + "/ack");
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks/admin/" + id + "/ack");
+	}
+
+	/**
+	 * Get the URL used to acknowledge several tasks in one request
+	 * 
+	 * @see #ackTasks(List)
+	 */
+	protected URL getTasksAckURL(Credentials cred) throws MalformedURLException {
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks/admin/ack");
 	}
 
 	/**
@@ -78,10 +118,44 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 	 * retrieved to ensure all tasks are processed and acknowledged in order.
 	 */
 	public AdminTasksApiNonOAS setReadOnly( boolean readOnly ) {
+		if (!readOnly && prefetching) {
+			throw new IllegalStateException("Prefetching requires read only mode");
+		}
 		this.readOnly = readOnly;
 		return this;
 	}
 
+	/**
+	 * Acknowledge several tasks in one request (the default is false). Only
+	 * enable this for a server that offers the bulk acknowledgement endpoint
+	 * (see {@link #getTasksAckURL(Credentials)}). If the server responds to a
+	 * bulk request with anything other than success, the tasks are
+	 * acknowledged one at a time instead.
+	 * 
+	 * @see #ackTasks(List)
+	 */
+	public AdminTasksApiNonOAS setBulkAck( boolean bulkAck ) {
+		this.bulkAck = bulkAck;
+		return this;
+	}
+
+	/**
+	 * Fetch pages of tasks in the background ahead of the consumer. Only
+	 * supported in "read only" mode: when tasks are being processed and
+	 * acknowledged, page zero must not be requested again until every task in
+	 * it has been acknowledged.
+	 * 
+	 * @see #setReadOnly(boolean)
+	 */
+	@Override
+	public void setPrefetch(int depth) {
+		if (depth > 0 && !readOnly) {
+			throw new IllegalStateException("Prefetching requires read only mode");
+		}
+		super.setPrefetch(depth);
+		prefetching = depth > 0;
+	}
+
 	@Override
 	protected List<KCTask> fetch(int page) {
 
@@ -94,13 +168,14 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 		int pageSize = 100;
 		int status = 0;
 		int retries = 0;
+		long start = System.nanoTime();
 		
 		this.morePages = false;
 
 		do {
 			try {
 				// List all Tasks for the authenticated tenant via the Tasks Admin API
-				Credentials cred = Credentials.forTenant(tenant);
+				Credentials cred = getCredentials();
 				URL url = getTasksURL(cred);
 
 				// Authenticate
@@ -112,27 +187,22 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 				// soon as they are processed. Consequently, it is page 0 and always page 0 that 
 				// should be processed. The page parameter to this method is used only for logging
 				// purposes but page 0 is always specified on the URL.
-				HttpResponse<JsonNode> jsonResponse = getReq.header("accept", "application/json")
-						.queryString("page", readOnly ? page : 0).queryString("page_size", pageSize).asJson();
+				//
+				// Tasks are decoded from the response body as it is read rather than
+				// buffering the whole page as a JSON tree.
+				HttpResponse<Boolean> response = getReq.header("accept", "application/json")
+						.queryString("page", readOnly ? page : 0).queryString("page_size", pageSize)
+						.asObject(raw -> decodePage(raw, tasks));
 
-				// Convert the response to an array of KCTasks
-				status = jsonResponse.getStatus();
+				status = response.getStatus();
 				if (status == HttpStatus.SC_OK) {
-					JSONObject body = jsonResponse.getBody().getObject();
-					if (body.has("data")) {
-						JSONArray arr = body.getJSONArray("data");
-						for (int i = 0; i < arr.length(); i++) {
-							tasks.add(new Task(arr.getJSONObject(i)));
-						}
-					}
-					if (body.has("paging")) {
-						morePages = !body.getJSONObject("paging").isNull("next");
-					}
+					morePages = Boolean.TRUE.equals(response.getBody());
 				} else if (status != HttpStatus.SC_UNAUTHORIZED) {
-					throw new KimonoApiException(jsonResponse.getStatus() + " " + jsonResponse.getStatusText());
+					throw new KimonoApiException(response.getStatus() + " " + response.getStatusText());
 				} else if (status == HttpStatus.SC_UNAUTHORIZED) {
-					// Clear the token to trigger reauthorization
-					cred.setAccessToken(null);
+					// Discard the rejected token to trigger reauthorization
+					cred.invalidateAccessToken();
+					Metrics.getMetrics().reauthorized(tenant);
 				}
 			} catch (KimonoApiException apiEx) {
 				throw apiEx;
@@ -141,11 +211,31 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 			}
 		} while (status == HttpStatus.SC_UNAUTHORIZED && retries++ < 3);
 
+		Metrics.getMetrics().fetched(tenant, tasks.size(), System.nanoTime() - start);
 		LOGGER.log(Level.INFO, "[Page "+page+"] Received "+tasks.size()+" tasks (morePages="+morePages+")");
 		
 		return tasks;
 	}
 
+	/**
+	 * Decode a page of Tasks from a successful response
+	 * 
+	 * @param raw   The response
+	 * @param tasks Receives the Tasks
+	 * @return true if more pages are available, or null if the response was not
+	 *         successful and its body was not read
+	 */
+	protected Boolean decodePage(RawResponse raw, List<KCTask> tasks) {
+		if (raw.getStatus() != HttpStatus.SC_OK) {
+			return null;
+		}
+		try {
+			return TaskPageDecoder.decode(raw.getContent(), tasks::add);
+		} catch (IOException ex) {
+			throw new KimonoApiException("Error decoding tasks", ex);
+		}
+	}
+
 	@Override
 	protected boolean hasMorePages() {
 		return morePages;
@@ -159,26 +249,88 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 			return;
 		}
 
-		int status = 0;
+		long start = System.nanoTime();
+		HttpResponse<JsonNode> jsonResponse = put(cred -> getTaskAckURL(cred, task.getId()), toJson(ack));
+		if (jsonResponse.getStatus() != HttpStatus.SC_OK) {
+			// All other non-200 statuses are considered errors
+			throw new KimonoApiException(jsonResponse.getStatus() + " " + jsonResponse.getStatusText());
+		}
+		Metrics.getMetrics().acked(tenant, 1, System.nanoTime() - start);
+	}
+
+	@Override
+	public void ackTasks(List<KCTaskResult> results) {
+
+		// Apply the same ack-or-leave-on-queue rule as ackTask to each task
+		List<KCTaskResult> acks = results.stream().filter(r -> process(r.getTask(), r.getAck()))
+				.collect(Collectors.toList());
+		if (acks.isEmpty()) {
+			return;
+		}
+
+		String bulkUrl = bulkAck && acks.size() > 1 ? bulkAckUrl() : null;
+		if (bulkUrl != null && !sBulkAckUnsupported.contains(bulkUrl)) {
+			ArrayNode body = new ObjectMapper().createArrayNode();
+			acks.forEach(r -> body.add(toJson(r.getAck()).put("id", r.getTask().getId().toString())));
+
+			long start = System.nanoTime();
+			HttpResponse<JsonNode> jsonResponse = put(this::getTasksAckURL, body);
+			int status = jsonResponse.getStatus();
+			if (status >= 200 && status < 300) {
+				Metrics.getMetrics().acked(tenant, acks.size(), System.nanoTime() - start);
+				return;
+			}
+			if (status == HttpStatus.SC_NOT_FOUND || status == HttpStatus.SC_METHOD_NOT_ALLOWED
+					|| status == HttpStatus.SC_NOT_IMPLEMENTED) {
+				// This server cannot acknowledge tasks in bulk; stop asking
+				LOGGER.log(Level.INFO,
+						"Bulk task acknowledgement not supported ({0}); acknowledging tasks individually", status);
+				sBulkAckUnsupported.add(bulkUrl);
+			} else {
+				// Acknowledgements are idempotent, so resending any the server may
+				// have applied before it failed is harmless
+				LOGGER.log(Level.WARNING, "Bulk task acknowledgement failed ({0} {1}); acknowledging tasks individually",
+						new Object[] { status, jsonResponse.getStatusText() });
+			}
+		}
+
+		for (KCTaskResult r : acks) {
+			ackTask(r.getTask(), r.getAck());
+		}
+	}
+
+	private String bulkAckUrl() {
+		try {
+			return getTasksAckURL(getCredentials()).toString();
+		} catch (MalformedURLException ex) {
+			throw new KimonoApiException(ex);
+		}
+	}
+
+	/**
+	 * PUT a JSON body, reauthorizing and retrying if the tenant's token has
+	 * expired
+	 * 
+	 * @param url  Produces the URL to PUT to
+	 * @param body The request body
+	 * @return The last response received
+	 */
+	protected HttpResponse<JsonNode> put(UrlFactory url, Object body) {
+		HttpResponse<JsonNode> jsonResponse = null;
 		int retries = 0;
 		do {
 			try {
-				Credentials cred = Credentials.forTenant(tenant);
-				URL url = getTaskAckURL(cred, task.getId());
+				Credentials cred = getCredentials();
 
 				// Authenticate
-				HttpRequestWithBody putReq = authorize(Unirest.put(url.toString()), cred);
+				HttpRequestWithBody putReq = authorize(Unirest.put(url.get(cred).toString()), cred);
 
 				// Acknowledge
-				HttpResponse<JsonNode> jsonResponse = putReq.header("Content-Type", "application/json")
-						.body(toJson(ack)).asJson();
-				status = jsonResponse.getStatus();
-				if (status == HttpStatus.SC_UNAUTHORIZED) {
-					// Clear the token to trigger reauthorization
-					cred.setAccessToken(null);
-				} else if (status != HttpStatus.SC_OK) {
-					// All other non-200 statuses are considered errors
-					throw new KimonoApiException(jsonResponse.getStatus() + " " + jsonResponse.getStatusText());
+				jsonResponse = putReq.header("Content-Type", "application/json").body(body).asJson();
+				if (jsonResponse.getStatus() == HttpStatus.SC_UNAUTHORIZED) {
+					// Discard the rejected token to trigger reauthorization
+					cred.invalidateAccessToken();
+					Metrics.getMetrics().reauthorized(tenant);
 				}
 
 			} catch (KimonoApiException apiEx) {
@@ -186,7 +338,15 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 			} catch (Exception ex) {
 				throw new KimonoApiException(ex);
 			}
-		} while (status == HttpStatus.SC_UNAUTHORIZED && retries++ < 3);
+		} while (jsonResponse.getStatus() == HttpStatus.SC_UNAUTHORIZED && retries++ < 3);
+		return jsonResponse;
+	}
+
+	/**
+	 * Get the credentials to authenticate requests with
+	 */
+	protected Credentials getCredentials() {
+		return Credentials.forTenant(tenant);
 	}
 
 	protected boolean process(KCTask task, KCTaskAck ack) {
@@ -226,10 +386,7 @@ public class AdminTasksApiNonOAS extends AbstractSupplier<KCTask> implements KCT
 		if (cred.getProto() == Credentials.Proto.BASIC) {
 			request.basicAuth(cred.getUsername(), cred.getPassword());
 		} else {
-			if (cred.getAccessToken() == null) {
-				cred.setAccessToken(AuthenticationUtils.authorize(cred).getString("access_token"));
-			}
-			request.header("Authorization", "Bearer " + cred.getAccessToken());
+			request.header("Authorization", "Bearer " + TokenManager.getAccessToken(cred));
 		}
 		return (T) request;
 	}
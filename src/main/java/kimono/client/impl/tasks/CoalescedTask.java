@@ -0,0 +1,218 @@
+package kimono.client.impl.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import kimono.client.KCTopic;
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAction;
+import kimono.client.tasks.KCTaskOrigin;
+import kimono.client.tasks.KCTaskType;
+import kimono.client.util.JsonUtils;
+
+/**
+ * A run of consecutive Data Events for the same object folded into a single
+ * Task, so the handler is called once with the final state of the object
+ * rather than once per event. The acknowledgement returned for a coalesced
+ * Task applies to every Task in the run.
+ * <p>
+ *
+ * The action of the run is that of its first Task, except that a run ending
+ * in DELETE is a DELETE, a run that adds an object and then deletes it has
+ * nothing left to do ({@link #isEmpty()}), and a CHANGE followed by a SET is a
+ * SET. The attributes are those of the last Task. The changes are merged from
+ * every Task; a property changed by more than one Task keeps the entry from
+ * the first of them, so the merged changes describe the object before the run.
+ * Every other property is taken from the last Task.
+ */
+public class CoalescedTask implements KCTask {
+
+	private final List<KCTask> tasks;
+
+	private final KCTaskAction action;
+
+	/**
+	 * The merged changes, built when first requested
+	 */
+	private JSONObject changes;
+
+	private CoalescedTask(List<KCTask> tasks, KCTaskAction action) {
+		this.tasks = tasks;
+		this.action = action;
+	}
+
+	/**
+	 * Fold runs of consecutive Data Events for the same topic and {@code $sys.id}
+	 * into {@link CoalescedTask}s. A DELETE ends a run. Tasks that are not
+	 * folded are returned as they are.
+	 *
+	 * @param page The Tasks, in the order they are to be handled
+	 * @return The Tasks to handle, in the same order
+	 */
+	public static List<KCTask> coalesce(List<KCTask> page) {
+		List<KCTask> result = new ArrayList<>(page.size());
+		int i = 0;
+		while (i < page.size()) {
+			KCTask first = page.get(i);
+			String id = objectId(first);
+			KCTaskAction action = first.getAction();
+			int end = i + 1;
+			if (id != null && action != KCTaskAction.DELETE) {
+				while (end < page.size() && action != KCTaskAction.DELETE && action != null) {
+					KCTask next = page.get(end);
+					if (!id.equals(objectId(next)) || !Objects.equals(first.getTopic(), next.getTopic())) {
+						break;
+					}
+					action = fold(action, next.getAction());
+					end++;
+				}
+			}
+			if (end - i == 1) {
+				result.add(first);
+			} else {
+				result.add(new CoalescedTask(new ArrayList<>(page.subList(i, end)), action));
+			}
+			i = end;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the Tasks that were folded together, in order
+	 */
+	public List<KCTask> getTasks() {
+		return Collections.unmodifiableList(tasks);
+	}
+
+	/**
+	 * Did the run add an object and then delete it, leaving nothing to do?
+	 */
+	public boolean isEmpty() {
+		return action == null;
+	}
+
+	@Override
+	public UUID getId() {
+		return last().getId();
+	}
+
+	@Override
+	public String getSchemaVersion() {
+		return last().getSchemaVersion();
+	}
+
+	@Override
+	public JSONObject getAttributes() {
+		return last().getAttributes();
+	}
+
+	@Override
+	public synchronized JSONObject getChanges() {
+		if (changes == null) {
+			JSONObject merged = new JSONObject();
+			for (KCTask task : tasks) {
+				JSONObject c;
+				try {
+					c = task.getChanges();
+				} catch (JSONException ex) {
+					continue;
+				}
+				if (c != null) {
+					for (String key : c.keySet()) {
+						if (!merged.has(key)) {
+							merged.put(key, c.get(key));
+						}
+					}
+				}
+			}
+			changes = merged;
+		}
+		return changes;
+	}
+
+	@Override
+	public KCTopic getTopic() {
+		return last().getTopic();
+	}
+
+	@Override
+	public KCTaskAction getAction() {
+		return action == null ? KCTaskAction.NOT_APPLICABLE : action;
+	}
+
+	@Override
+	public KCTaskType getType() {
+		return KCTaskType.DATA_EVENT;
+	}
+
+	@Override
+	public KCTaskOrigin getOrigin() {
+		return last().getOrigin();
+	}
+
+	@Override
+	public String getGroupId() {
+		return last().getGroupId();
+	}
+
+	@Override
+	public long getSequence() {
+		return last().getSequence();
+	}
+
+	@Override
+	public JSONObject getPayload() {
+		return last().getPayload();
+	}
+
+	@Override
+	public String toString() {
+		return getType() + ":" + getAction() + " " + getTopic() + " [" + tasks.size() + " tasks, last id="
+				+ getId() + "]";
+	}
+
+	private KCTask last() {
+		return tasks.get(tasks.size() - 1);
+	}
+
+	/**
+	 * Combine the action of a run with the action of the next Task in it
+	 *
+	 * @return The action of the longer run, or null if it adds and then deletes
+	 *         the object
+	 */
+	private static KCTaskAction fold(KCTaskAction run, KCTaskAction next) {
+		if (next == KCTaskAction.DELETE) {
+			return run == KCTaskAction.ADD ? null : KCTaskAction.DELETE;
+		}
+		if (run == KCTaskAction.CHANGE && next == KCTaskAction.SET) {
+			return KCTaskAction.SET;
+		}
+		return run;
+	}
+
+	/**
+	 * Get the {@code $sys.id} of a Data Event that can be folded, or null
+	 */
+	private static String objectId(KCTask task) {
+		if (task.getType() != KCTaskType.DATA_EVENT || task.getTopic() == null) {
+			return null;
+		}
+		KCTaskAction action = task.getAction();
+		if (action != KCTaskAction.ADD && action != KCTaskAction.CHANGE && action != KCTaskAction.SET
+				&& action != KCTaskAction.DELETE) {
+			return null;
+		}
+		try {
+			return JsonUtils.sys(task.getAttributes(), "id");
+		} catch (JSONException ex) {
+			return null;
+		}
+	}
+}
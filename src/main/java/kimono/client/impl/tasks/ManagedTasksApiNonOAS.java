@@ -25,11 +25,16 @@ public class ManagedTasksApiNonOAS extends AdminTasksApiNonOAS {
 	
 	@Override
 	protected URL getTasksURL(Credentials cred) throws MalformedURLException {
-		return new URL(KimonoApis.getInteropDataClient(cred).getBasePath() + "/tasks");
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks");
 	}
 
 	@Override
 	protected URL getTaskAckURL(Credentials cred, UUID id) throws MalformedURLException {
-		return new URL(KimonoApis.getInteropDataClient(cred).getBasePath() + "/tasks/" + id + "/ack");
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks/" + id + "/ack");
+	}
+
+	@Override
+	protected URL getTasksAckURL(Credentials cred) throws MalformedURLException {
+		return new URL(KimonoApis.getInteropDataBasePath() + "/tasks/ack");
 	}
 }
@@ -0,0 +1,192 @@
+package kimono.client.impl.tasks;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import kimono.client.tasks.KCTaskAck;
+
+/**
+ * A bounded set of recently completed Task IDs and the acknowledgement each was
+ * given. IDs are held as pairs of primitive longs in a ring buffer, oldest
+ * first, and indexed by an open-addressed hash table with linear probing, so
+ * the set allocates nothing after construction apart from the acknowledgements
+ * it retains. When the ring is full the oldest ID is forgotten; an ID is also
+ * forgotten once it is older than the time to live.
+ * <p>
+ *
+ * Not thread safe; callers synchronize on the set.
+ */
+public class RecentTaskSet {
+
+	private static final int EMPTY = -1;
+
+	/**
+	 * Ring buffer of entries in insertion order
+	 */
+	private final long[] msb;
+	private final long[] lsb;
+	private final long[] addedAt;
+	private final KCTaskAck[] acks;
+
+	/**
+	 * Index of the oldest entry in the ring
+	 */
+	private int head;
+
+	/**
+	 * Number of entries in the ring
+	 */
+	private int size;
+
+	/**
+	 * Hash table of ring indexes; {@link #EMPTY} marks a free slot. Always at
+	 * least twice the capacity of the ring.
+	 */
+	private final int[] table;
+	private final int mask;
+
+	private final long ttl;
+
+	/**
+	 * @param capacity The maximum number of IDs to remember
+	 * @param ttl      How long in milliseconds to remember an ID; 0 to remember it
+	 *                 until it is displaced
+	 */
+	public RecentTaskSet(int capacity, long ttl) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+		msb = new long[capacity];
+		lsb = new long[capacity];
+		addedAt = new long[capacity];
+		acks = new KCTaskAck[capacity];
+		int slots = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+		table = new int[slots];
+		mask = slots - 1;
+		Arrays.fill(table, EMPTY);
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Get the acknowledgement a Task was given, if it was completed recently
+	 *
+	 * @param id The Task ID
+	 * @return The acknowledgement, or null if the ID is not in the set
+	 */
+	public KCTaskAck get(UUID id) {
+		expire(System.currentTimeMillis());
+		int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+		return slot == EMPTY ? null : acks[table[slot]];
+	}
+
+	/**
+	 * Remember the acknowledgement a Task was given, forgetting the oldest ID if
+	 * the set is full. An ID that is already present keeps its place.
+	 *
+	 * @param id  The Task ID
+	 * @param ack The acknowledgement
+	 */
+	public void put(UUID id, KCTaskAck ack) {
+		long now = System.currentTimeMillis();
+		expire(now);
+		long hi = id.getMostSignificantBits();
+		long lo = id.getLeastSignificantBits();
+		int slot = find(hi, lo);
+		if (slot != EMPTY) {
+			acks[table[slot]] = ack;
+			return;
+		}
+		if (size == msb.length) {
+			removeOldest();
+		}
+		int entry = (head + size++) % msb.length;
+		msb[entry] = hi;
+		lsb[entry] = lo;
+		addedAt[entry] = now;
+		acks[entry] = ack;
+		int i = home(hi, lo);
+		while (table[i] != EMPTY) {
+			i = (i + 1) & mask;
+		}
+		table[i] = entry;
+	}
+
+	/**
+	 * Get the number of IDs in the set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Forget every ID
+	 */
+	public void clear() {
+		Arrays.fill(table, EMPTY);
+		Arrays.fill(acks, null);
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Forget IDs older than the time to live
+	 */
+	private void expire(long now) {
+		if (ttl > 0) {
+			while (size > 0 && now - addedAt[head] >= ttl) {
+				removeOldest();
+			}
+		}
+	}
+
+	/**
+	 * Find the table slot of an ID
+	 *
+	 * @return The slot, or {@link #EMPTY}
+	 */
+	private int find(long hi, long lo) {
+		int i = home(hi, lo);
+		while (table[i] != EMPTY) {
+			int entry = table[i];
+			if (msb[entry] == hi && lsb[entry] == lo) {
+				return i;
+			}
+			i = (i + 1) & mask;
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Remove the oldest entry from the ring and the table
+	 */
+	private void removeOldest() {
+		int i = find(msb[head], lsb[head]);
+		acks[head] = null;
+		head = (head + 1) % msb.length;
+		size--;
+
+		// Backward-shift deletion keeps every probe sequence unbroken without
+		// tombstones
+		int j = i;
+		while (true) {
+			j = (j + 1) & mask;
+			if (table[j] == EMPTY) {
+				break;
+			}
+			int k = home(msb[table[j]], lsb[table[j]]);
+			if (i <= j ? (k <= i || k > j) : (k <= i && k > j)) {
+				table[i] = table[j];
+				i = j;
+			}
+		}
+		table[i] = EMPTY;
+	}
+
+	private int home(long hi, long lo) {
+		long h = hi ^ lo;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		return (int) h & mask;
+	}
+}
@@ -1,8 +1,11 @@
 package kimono.client.impl.tasks;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.text.CaseUtils;
 import org.json.JSONObject;
@@ -18,6 +21,13 @@ import kimono.client.tasks.KCTaskType;
 
 public class Task implements KCTask {
 
+	private static final Logger LOGGER = Logger.getLogger(Task.class.getName());
+
+	/**
+	 * The task JSON as received
+	 */
+	private final JSONObject json;
+
 	/**
 	 * The JSON object representing the task payload. For 2.x and earlier schema
 	 * versions this object is a child of the task JSON, for 3.x and later it is the
@@ -35,6 +45,22 @@ public class Task implements KCTask {
 	 */
 	private KCTaskType type;
 
+	/**
+	 * The envelope keys for the task schema, chosen once per task
+	 */
+	private final Map<String, String> keys;
+
+	/*
+	 * Envelope fields, decoded once when the task is constructed
+	 */
+	private final UUID id;
+	private final KCTopic topic;
+	private final KCTaskAction action;
+	private final KCTaskOrigin origin;
+	private final String groupId;
+	private final long sequence;
+	private final String schemaVersion;
+
 	private static final String OBJECT_TYPE = "object_type";
 	private static final String ACTION = "action";
 	private static final String TYPE = "type";
@@ -71,8 +97,20 @@ public class Task implements KCTask {
 		ATTRS2.put(ID, ID);
 	};
 
+	/**
+	 * The key under which each task type's payload appears prior to schema 3.x
+	 */
+	private static Map<KCTaskType, String> TYPES1 = new EnumMap<>(KCTaskType.class);
+	private static Map<KCTaskType, String> TYPES2 = new EnumMap<>(KCTaskType.class);
+	static {
+		for (KCTaskType typ : KCTaskType.values()) {
+			TYPES1.put(typ, CaseUtils.toCamelCase(typ.name(), false, '_'));
+			TYPES2.put(typ, typ.name().toLowerCase());
+		}
+	};
+
 	private String key(String s) {
-		return schema.getMajorVersion() == 1 ? CaseUtils.toCamelCase(s, false, '_') : s;
+		return keys.get(s);
 	}
 
 	/**
@@ -81,6 +119,7 @@ public class Task implements KCTask {
 	 * @param task The JSON object
 	 */
 	public Task(JSONObject task) {
+		json = task;
 		if (task.has("schema")) {
 			schema = Version.valueOf(task.getString(SCHEMA));
 		} else {
@@ -99,6 +138,8 @@ public class Task implements KCTask {
 			}
 		}
 
+		keys = schema.getMajorVersion() == 1 ? ATTRS1 : ATTRS2;
+
 		if (schema.getMajorVersion() == 1 || schema.getMajorVersion() == 2) {
 			decodePre3x(task);
 		} else if (schema.getMajorVersion() == 3) {
@@ -106,14 +147,67 @@ public class Task implements KCTask {
 		} else {
 			throw new KimonoApiException("Task schema not supported: " + schema);
 		}
+
+		// Decode the envelope once so repeated calls to the getters don't allocate
+		if (payload == null) {
+			id = null;
+			topic = null;
+			action = null;
+			origin = null;
+			groupId = null;
+			sequence = -1;
+			schemaVersion = null;
+		} else {
+			try {
+				String str = payload.optString(key(ID), null);
+				id = str == null ? null : decodeId(str);
+				str = payload.optString(key(OBJECT_TYPE), null);
+				topic = str == null ? null : KCTopic.parse(str);
+				str = payload.optString(key(ACTION), null);
+				action = str == null ? null : decode(KCTaskAction.class, str, KCTaskAction.NOT_APPLICABLE);
+				str = payload.optString("origin", null);
+				origin = str == null ? null : decode(KCTaskOrigin.class, str, null);
+				groupId = payload.optString(key(GROUP_ID), null);
+				sequence = payload.optLong(key(SEQUENCE), -1);
+				schemaVersion = payload.optString(key(SCHEMA), null);
+			} catch (Exception ex) {
+				throw new KimonoApiException("Error decoding task envelope", ex);
+			}
+		}
+	}
+
+	/**
+	 * Decode an enumerated envelope value leniently, so a value this version of
+	 * the client does not know about affects only the one Task rather than the
+	 * page it arrived on
+	 * 
+	 * @param unknown The value to use if {@code str} is not recognized
+	 */
+	private static <E extends Enum<E>> E decode(Class<E> type, String str, E unknown) {
+		try {
+			return Enum.valueOf(type, str.toUpperCase());
+		} catch (IllegalArgumentException ex) {
+			LOGGER.log(Level.WARNING, "Unknown {0} \"{1}\"; using {2}",
+					new Object[] { type.getSimpleName(), str, unknown });
+			return unknown;
+		}
+	}
+
+	private static UUID decodeId(String str) {
+		try {
+			return UUID.fromString(str);
+		} catch (IllegalArgumentException ex) {
+			LOGGER.log(Level.WARNING, "Malformed Task id \"{0}\"", str);
+			return null;
+		}
 	}
 
 	protected void decodePre3x(JSONObject task) {
 		try {
 			// Prior to Schema 3.x is like this: { "schema": version, "type": { ... } }
+			Map<KCTaskType, String> types = schema.getMajorVersion() == 1 ? TYPES1 : TYPES2;
 			for (KCTaskType typ : KCTaskType.values()) {
-				String str = schema.getMajorVersion() == 1 ? CaseUtils.toCamelCase(typ.name(), false, '_')
-						: typ.name().toLowerCase();
+				String str = types.get(typ);
 				if (task.has(str)) {
 					type = typ;
 					payload = task.getJSONObject(str);
@@ -147,11 +241,7 @@ public class Task implements KCTask {
 
 	@Override
 	public KCTopic getTopic() {
-		if (payload.has(key(OBJECT_TYPE))) {
-			return KCTopic.parse(payload.getString(key(OBJECT_TYPE)));
-		} else {
-			return null;
-		}
+		return topic;
 	}
 
 	@Override
@@ -161,42 +251,45 @@ public class Task implements KCTask {
 
 	@Override
 	public KCTaskAction getAction() {
-		return KCTaskAction.valueOf(payload.getString(key(ACTION)).toUpperCase());
+		return action;
 	}
 
 	@Override
 	public String getGroupId() {
-		return payload.getString(key(GROUP_ID));
+		return groupId;
 	}
 
+	/**
+	 * @return The sequence number, or -1 if the task does not have one
+	 */
 	@Override
 	public long getSequence() {
-		return payload.getLong(key(SEQUENCE));
+		return sequence;
 	}
 
 	@Override
 	public UUID getId() {
-		return UUID.fromString(payload.getString(key(ID)));
+		return id;
 	}
 
 	@Override
 	public String getSchemaVersion() {
-		return payload.getString(key(SCHEMA));
+		return schemaVersion;
 	}
 
 	@Override
 	public KCTaskOrigin getOrigin() {
-		return payload.has("origin") ? KCTaskOrigin.valueOf(payload.getString("origin").toUpperCase()) : null;
+		return origin;
 	}
 	
 	@Override
 	public String toString() {
 		StringBuilder b = new StringBuilder();
-		b.append(getType().toString()).append(":").append(getAction().toString());
-		if( getTopic() != null ) {
-			b.append(" ").append(getTopic().toString());
+		b.append(type).append(":").append(action);
+		if( topic != null ) {
+			b.append(" ").append(topic);
 		}
-		b.append(" [id=").append(getId().toString()).append("]");
+		b.append(" [id=").append(id).append("]");
 		if( payload != null ) {
 			b.append("\r\n").append(payload.toString(2));
 		}
@@ -207,4 +300,12 @@ public class Task implements KCTask {
 	public JSONObject getPayload() {
 		return payload;
 	}
+
+	/**
+	 * Get the task JSON as received, e.g. to write the task to a journal and
+	 * reconstruct it later with {@link #Task(JSONObject)}
+	 */
+	public JSONObject toJSON() {
+		return json;
+	}
 }
@@ -0,0 +1,174 @@
+package kimono.client.impl.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+import kimono.client.tasks.KCTaskApi;
+import kimono.client.tasks.KCTaskResult;
+import kimono.client.util.ThreadUtils;
+
+/**
+ * Collects Task acknowledgements and sends them to a {@link KCTaskApi} in
+ * batches. A batch is sent when it reaches a maximum size, when its oldest
+ * acknowledgement has waited longer than a maximum delay, or when
+ * {@link #flush()} is called. The delay is enforced by a timer, so an
+ * acknowledgement is not held back while the next Task is handled.
+ * Acknowledgements are always sent in the order they were added.
+ * <p>
+ *
+ * Batches are sent while a {@link ReentrantLock} is held rather than a
+ * monitor, so a virtual thread waiting on a request does not pin its carrier
+ * thread.
+ */
+public class TaskAckBatcher implements TaskAckSink {
+
+	private static final Logger LOGGER = Logger.getLogger(TaskAckBatcher.class.getName());
+
+	/**
+	 * Sends batches that have waited the maximum delay. The thread exits when
+	 * idle.
+	 */
+	private static final ScheduledThreadPoolExecutor sTimer = new ScheduledThreadPoolExecutor(1,
+			ThreadUtils.newThreadFactory("kimono-ack-timer"));
+	static {
+		sTimer.setKeepAliveTime(30, TimeUnit.SECONDS);
+		sTimer.allowCoreThreadTimeOut(true);
+		sTimer.setRemoveOnCancelPolicy(true);
+	}
+
+	/**
+	 * The Tasks API to send acknowledgements to
+	 */
+	private KCTaskApi api;
+
+	/**
+	 * Send a batch once it holds this many acknowledgements
+	 */
+	private int maxSize;
+
+	/**
+	 * Send a batch once its oldest acknowledgement has waited this long
+	 */
+	private long maxDelayMs;
+
+	/**
+	 * Guards the pending batch
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * The pending batch
+	 */
+	private List<KCTaskResult> batch = new ArrayList<>();
+
+	/**
+	 * When the first acknowledgement in the pending batch was added
+	 */
+	private long batchStarted;
+
+	/**
+	 * Sends the pending batch once it has waited the maximum delay
+	 */
+	private ScheduledFuture<?> timer;
+
+	/**
+	 * @param api      The Tasks API to send acknowledgements to
+	 * @param maxSize  The maximum number of acknowledgements per batch; 1 sends
+	 *                 each acknowledgement as soon as it is added
+	 * @param maxDelay The maximum time an acknowledgement waits in a batch
+	 * @param unit     The unit of {@code maxDelay}
+	 */
+	public TaskAckBatcher(KCTaskApi api, int maxSize, long maxDelay, TimeUnit unit) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1");
+		}
+		this.api = api;
+		this.maxSize = maxSize;
+		this.maxDelayMs = unit.toMillis(maxDelay);
+	}
+
+	/**
+	 * Add an acknowledgement to the pending batch, sending the batch if it is
+	 * full or has waited too long
+	 */
+	@Override
+	public void add(KCTask task, KCTaskAck ack) {
+		lock.lock();
+		try {
+			long now = System.currentTimeMillis();
+			if (batch.isEmpty()) {
+				batchStarted = now;
+			}
+			batch.add(new TaskResult(task, ack));
+			if (batch.size() >= maxSize || now - batchStarted >= maxDelayMs) {
+				send();
+			} else if (timer == null) {
+				timer = sTimer.schedule(this::flushIfDue, maxDelayMs - (now - batchStarted), TimeUnit.MILLISECONDS);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Send the pending batch, if any
+	 */
+	@Override
+	public void flush() {
+		lock.lock();
+		try {
+			send();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Send the pending batch from the timer if it has waited the maximum delay.
+	 * A failure is logged; the Tasks are redelivered as they were not
+	 * acknowledged.
+	 */
+	private void flushIfDue() {
+		lock.lock();
+		try {
+			timer = null;
+			if (!batch.isEmpty()) {
+				long waited = System.currentTimeMillis() - batchStarted;
+				if (waited >= maxDelayMs) {
+					send();
+				} else {
+					timer = sTimer.schedule(this::flushIfDue, maxDelayMs - waited, TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Error sending Task acknowledgements", ex);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void send() {
+		if (timer != null) {
+			timer.cancel(false);
+			timer = null;
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+		List<KCTaskResult> results = batch;
+		batch = new ArrayList<>();
+		if (results.size() == 1) {
+			api.ackTask(results.get(0).getTask(), results.get(0).getAck());
+		} else {
+			api.ackTasks(results);
+		}
+	}
+}
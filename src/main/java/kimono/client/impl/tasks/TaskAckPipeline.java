@@ -0,0 +1,242 @@
+package kimono.client.impl.tasks;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import kimono.client.KimonoApiException;
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+import kimono.client.tasks.KCTaskApi;
+import kimono.client.tasks.KCTaskResult;
+import kimono.client.util.ThreadUtils;
+
+/**
+ * A {@link TaskAckSink} that sends acknowledgements from a background
+ * sender so the network round trip of one acknowledgement overlaps with
+ * handling the next Task.
+ * <p>
+ *
+ * {@link #add(KCTask, KCTaskAck)} queues an acknowledgement and returns
+ * immediately unless the queue is full. A single sender drains the queue, so
+ * acknowledgements are sent in the order they were added. {@link #flush()} is
+ * a barrier: it returns once every acknowledgement added before it has been
+ * sent. If sending fails, the failure is rethrown by the next call to
+ * {@link #add(KCTask, KCTaskAck)} or {@link #flush()}.
+ * <p>
+ *
+ * The sender batches acknowledgements with its own {@link TaskAckBatcher}, so
+ * the pipeline's lock is never held while a request is in flight. Waiting in
+ * {@link #flush()} uses a {@link Condition} rather than {@link Object#wait()}
+ * so a virtual thread does not pin its carrier thread.
+ */
+public class TaskAckPipeline implements TaskAckSink {
+
+	/**
+	 * Queued to ask the sender to send its pending batch immediately
+	 */
+	private static final KCTaskResult FLUSH = new TaskResult(null, null);
+
+	/**
+	 * Acknowledgements waiting for the sender
+	 */
+	private BlockingQueue<KCTaskResult> queue;
+
+	/**
+	 * Runs the sender
+	 */
+	private Executor executor;
+
+	/**
+	 * Batches and sends acknowledgements on the sender thread
+	 */
+	private TaskAckBatcher sender;
+
+	/**
+	 * How long the sender waits for the queue before sending its batch
+	 */
+	private long maxDelayMs;
+
+	/**
+	 * Guards the sender's state
+	 */
+	private final ReentrantLock state = new ReentrantLock();
+
+	/**
+	 * Signalled when acknowledgements have been sent or the sender failed
+	 */
+	private final Condition progress = state.newCondition();
+
+	/**
+	 * Is a sender running? Guarded by {@link #state}.
+	 */
+	private boolean sending;
+
+	/**
+	 * Number of acknowledgements added but not yet sent. Guarded by
+	 * {@link #state}.
+	 */
+	private int outstanding;
+
+	/**
+	 * The exception that stopped the sender, if any. Guarded by {@link #state}.
+	 */
+	private Throwable failure;
+
+	/**
+	 * @param api        The Tasks API to send acknowledgements to
+	 * @param executor   Runs the background sender
+	 * @param queueDepth The maximum number of acknowledgements waiting to be
+	 *                   sent; {@link #add(KCTask, KCTaskAck)} blocks when the
+	 *                   queue is full
+	 * @param maxSize    The maximum number of acknowledgements per request
+	 * @param maxDelay   The maximum time an acknowledgement waits in a batch
+	 * @param unit       The unit of {@code maxDelay}
+	 */
+	public TaskAckPipeline(KCTaskApi api, Executor executor, int queueDepth, int maxSize, long maxDelay,
+			TimeUnit unit) {
+		this.executor = executor;
+		this.sender = new TaskAckBatcher(api, maxSize, maxDelay, unit);
+		this.maxDelayMs = unit.toMillis(maxDelay);
+		this.queue = new LinkedBlockingQueue<>(queueDepth);
+	}
+
+	@Override
+	public void add(KCTask task, KCTaskAck ack) {
+		state.lock();
+		try {
+			checkFailure();
+			outstanding++;
+		} finally {
+			state.unlock();
+		}
+		enqueue(new TaskResult(task, ack));
+	}
+
+	@Override
+	public void flush() {
+		state.lock();
+		try {
+			checkFailure();
+			if (outstanding == 0) {
+				return;
+			}
+		} finally {
+			state.unlock();
+		}
+		enqueue(FLUSH);
+		state.lock();
+		try {
+			while (outstanding > 0 && failure == null) {
+				try {
+					progress.await();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw new KimonoApiException(ie);
+				}
+			}
+			checkFailure();
+		} finally {
+			state.unlock();
+		}
+	}
+
+	private void enqueue(KCTaskResult result) {
+		try {
+			queue.put(result);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new KimonoApiException(ie);
+		}
+		state.lock();
+		try {
+			if (!sending) {
+				sending = true;
+				executor.execute(this::runSender);
+			}
+		} finally {
+			state.unlock();
+		}
+	}
+
+	/**
+	 * The sender: batch queued acknowledgements and send them when a batch
+	 * fills, when a flush is requested, or when the queue has been idle for the
+	 * maximum batch delay. Exits once the queue is idle and empty. Anything that
+	 * stops the sender, even an {@link Error}, is recorded so callers waiting in
+	 * {@link #flush()} are released.
+	 */
+	private void runSender() {
+		int batched = 0;
+		Throwable error = null;
+		try {
+			while (true) {
+				KCTaskResult result = queue.poll(maxDelayMs, TimeUnit.MILLISECONDS);
+				if (result != null && result != FLUSH) {
+					sender.add(result.getTask(), result.getAck());
+					batched++;
+					continue;
+				}
+
+				sender.flush();
+				sent(batched);
+				batched = 0;
+
+				if (result == null) {
+					state.lock();
+					try {
+						if (queue.isEmpty()) {
+							sending = false;
+							return;
+						}
+					} finally {
+						state.unlock();
+					}
+				}
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			error = new KimonoApiException(ie);
+		} catch (RuntimeException ex) {
+			error = ex;
+		} catch (Error err) {
+			error = err;
+			throw err;
+		} finally {
+			if (error != null) {
+				failed(error);
+			}
+		}
+	}
+
+	private void sent(int count) {
+		state.lock();
+		try {
+			outstanding -= count;
+			progress.signalAll();
+		} finally {
+			state.unlock();
+		}
+	}
+
+	private void failed(Throwable ex) {
+		state.lock();
+		try {
+			failure = ex;
+			sending = false;
+			queue.clear();
+			progress.signalAll();
+		} finally {
+			state.unlock();
+		}
+	}
+
+	private void checkFailure() {
+		if (failure != null) {
+			throw ThreadUtils.rethrow(failure);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package kimono.client.impl.tasks;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+
+/**
+ * Accepts Task acknowledgements for a tenant and sends them to the Tasks API
+ * in the order they were added
+ *
+ * @see TaskAckBatcher
+ * @see TaskAckPipeline
+ */
+public interface TaskAckSink {
+
+	/**
+	 * Add an acknowledgement. It may be sent later.
+	 */
+	void add(KCTask task, KCTaskAck ack);
+
+	/**
+	 * Send every acknowledgement added so far, returning once they have been
+	 * sent
+	 */
+	void flush();
+}
@@ -0,0 +1,362 @@
+package kimono.client.impl.tasks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.json.JSONObject;
+
+import kimono.client.tasks.KCTask;
+
+/**
+ * An append-only journal of a tenant's Tasks, used as a durable local inbox so
+ * Tasks can be acknowledged as soon as they are safely on disk and handled
+ * afterwards.
+ * <p>
+ *
+ * The journal is a folder of segment files named by a sequence number, e.g.
+ * {@code 00000000000000000001.log}. Each record is the length and CRC32 of the
+ * Task's JSON followed by the JSON itself in UTF-8. A page of Tasks is appended
+ * with a single fsync. A new segment is started once the current one reaches
+ * the segment size, and segments are deleted once every record in them has
+ * been checkpointed. The checkpoint (the segment and offset of the next record
+ * to handle) is kept in a {@code checkpoint} file that is replaced atomically.
+ * <p>
+ *
+ * When a journal is opened, any incomplete or corrupt record at the end of the
+ * last segment, left by a crash during an append, is truncated. Records after
+ * the checkpoint are handled again, so handlers must be idempotent, as they
+ * already must be for redelivered Tasks.
+ */
+public class TaskJournal implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(TaskJournal.class.getName());
+
+	public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static final String CHECKPOINT = "checkpoint";
+
+	/**
+	 * Length and CRC of each record
+	 */
+	private static final int HEADER_SIZE = 8;
+
+	/**
+	 * A Task read from the journal, and the position of the record after it. A
+	 * record that cannot be read is returned as an entry without a Task so it is
+	 * checkpointed past like any other.
+	 */
+	public static class Entry {
+
+		private final KCTask task;
+		private final long segment;
+		private final long next;
+
+		Entry(KCTask task, long segment, long next) {
+			this.task = task;
+			this.segment = segment;
+			this.next = next;
+		}
+
+		/**
+		 * @return The Task, or null if the record was corrupt and is skipped
+		 */
+		public KCTask getTask() {
+			return task;
+		}
+	}
+
+	private final File folder;
+
+	private final long segmentSize;
+
+	/**
+	 * The segment being appended to
+	 */
+	private FileChannel writer;
+	private long writeSegment;
+
+	/**
+	 * The position of the next record to handle
+	 */
+	private long readSegment;
+	private long readOffset;
+
+	/**
+	 * Open a journal, creating it if it does not exist
+	 *
+	 * @param folder      The journal folder
+	 * @param segmentSize Start a new segment once the current one reaches this
+	 *                    many bytes
+	 * @throws IOException if the journal cannot be opened
+	 */
+	public TaskJournal(File folder, long segmentSize) throws IOException {
+		this.folder = folder;
+		this.segmentSize = segmentSize;
+		Files.createDirectories(folder.toPath());
+		readCheckpoint();
+
+		TreeSet<Long> segments = listSegments();
+		writeSegment = Math.max(Math.max(readSegment, 1), segments.isEmpty() ? 0 : segments.last());
+		if (segments.isEmpty() || readSegment < segments.first()) {
+			// Nothing to replay before the first segment
+			readSegment = segments.isEmpty() ? writeSegment : segments.first();
+			readOffset = 0;
+		}
+		writer = FileChannel.open(segment(writeSegment).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ);
+		recover();
+	}
+
+	/**
+	 * Append a page of Tasks and force them to disk
+	 *
+	 * @param tasks The Tasks, which must be {@link Task} instances
+	 * @throws IOException if the Tasks cannot be written; some of them may have
+	 *                     been written, and will be handled when a later append
+	 *                     succeeds
+	 */
+	public synchronized void append(List<KCTask> tasks) throws IOException {
+		if (tasks.isEmpty()) {
+			return;
+		}
+		CRC32 crc = new CRC32();
+		for (KCTask task : tasks) {
+			if (!(task instanceof Task)) {
+				throw new IllegalArgumentException("Only Tasks decoded from JSON can be journaled");
+			}
+			byte[] json = ((Task) task).toJSON().toString().getBytes(StandardCharsets.UTF_8);
+			crc.reset();
+			crc.update(json, 0, json.length);
+			ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + json.length);
+			buf.putInt(json.length).putInt((int) crc.getValue()).put(json).flip();
+			while (buf.hasRemaining()) {
+				writer.write(buf);
+			}
+			if (writer.position() >= segmentSize) {
+				roll();
+			}
+		}
+		writer.force(false);
+	}
+
+	/**
+	 * Read Tasks from the checkpoint onwards. Reading does not move the
+	 * checkpoint; call {@link #checkpoint(Entry)} once Tasks have been handled.
+	 *
+	 * @param max The maximum number of Tasks to read
+	 * @return The Tasks, including an entry without a Task for each record that
+	 *         is skipped, or an empty list if every Task has been handled
+	 * @throws IOException if the journal cannot be read
+	 */
+	public synchronized List<Entry> read(int max) throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		long seg = readSegment;
+		long pos = readOffset;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		while (entries.size() < max && seg <= writeSegment) {
+			File file = segment(seg);
+			if (!file.exists()) {
+				seg++;
+				pos = 0;
+				continue;
+			}
+			try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				long size = seg == writeSegment ? writer.position() : in.size();
+				while (entries.size() < max && pos + HEADER_SIZE <= size) {
+					header.clear();
+					readFully(in, header, pos);
+					int length = header.getInt(0);
+					int checksum = header.getInt(4);
+					if (length < 0 || pos + HEADER_SIZE + length > size) {
+						LOGGER.log(Level.SEVERE, "Incomplete record in {0} at {1}; skipping the rest of the segment",
+								new Object[] { file, pos });
+						pos = size;
+						entries.add(new Entry(null, seg, pos));
+						break;
+					}
+					ByteBuffer body = ByteBuffer.allocate(length);
+					readFully(in, body, pos + HEADER_SIZE);
+					crc.reset();
+					crc.update(body.array(), 0, length);
+					pos += HEADER_SIZE + length;
+					if ((int) crc.getValue() != checksum) {
+						LOGGER.log(Level.SEVERE, "Corrupt record in {0} before {1}; skipping it",
+								new Object[] { file, pos });
+						entries.add(new Entry(null, seg, pos));
+						continue;
+					}
+					String json = new String(body.array(), StandardCharsets.UTF_8);
+					try {
+						entries.add(new Entry(new Task(new JSONObject(json)), seg, pos));
+					} catch (RuntimeException ex) {
+						LOGGER.log(Level.SEVERE, "Cannot decode record in " + file + " before " + pos + "; skipping it",
+								ex);
+						entries.add(new Entry(null, seg, pos));
+					}
+				}
+				if (pos < size || seg == writeSegment) {
+					break;
+				}
+			}
+			seg++;
+			pos = 0;
+		}
+		return entries;
+	}
+
+	/**
+	 * Record that an entry and every entry before it have been handled. Segments
+	 * that are no longer needed are deleted.
+	 *
+	 * @param entry The last entry handled
+	 * @throws IOException if the checkpoint cannot be written
+	 */
+	public synchronized void checkpoint(Entry entry) throws IOException {
+		readSegment = entry.segment;
+		readOffset = entry.next;
+		writeCheckpoint();
+		for (long seg : listSegments().headSet(readSegment)) {
+			Files.deleteIfExists(segment(seg).toPath());
+		}
+	}
+
+	/**
+	 * Are there Tasks after the checkpoint?
+	 */
+	public synchronized boolean isPending() throws IOException {
+		return readSegment < writeSegment || readOffset < writer.position();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Close the current segment and start the next one
+	 */
+	private void roll() throws IOException {
+		writer.force(false);
+		writer.close();
+		writeSegment++;
+		writer = FileChannel.open(segment(writeSegment).toPath(), StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.WRITE, StandardOpenOption.READ);
+	}
+
+	/**
+	 * Find the end of the last complete record in the segment being appended to,
+	 * truncating anything after it, and position the writer there
+	 */
+	private void recover() throws IOException {
+		long size = writer.size();
+		long pos = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		CRC32 crc = new CRC32();
+		while (pos + HEADER_SIZE <= size) {
+			header.clear();
+			readFully(writer, header, pos);
+			int length = header.getInt(0);
+			if (length < 0 || pos + HEADER_SIZE + length > size) {
+				break;
+			}
+			ByteBuffer body = ByteBuffer.allocate(length);
+			readFully(writer, body, pos + HEADER_SIZE);
+			crc.reset();
+			crc.update(body.array(), 0, length);
+			if ((int) crc.getValue() != header.getInt(4)) {
+				break;
+			}
+			pos += HEADER_SIZE + length;
+		}
+		if (pos < size) {
+			LOGGER.log(Level.WARNING, "Truncating {0} bytes of incomplete records from {1}",
+					new Object[] { size - pos, segment(writeSegment) });
+			writer.truncate(pos);
+			writer.force(true);
+		}
+		writer.position(pos);
+		if (readSegment == writeSegment && readOffset > pos) {
+			readOffset = pos;
+		}
+	}
+
+	private void readCheckpoint() throws IOException {
+		File file = new File(folder, CHECKPOINT);
+		if (file.exists()) {
+			ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+			if (buf.remaining() == 16) {
+				readSegment = buf.getLong();
+				readOffset = buf.getLong();
+				return;
+			}
+			LOGGER.log(Level.WARNING, "Ignoring malformed checkpoint {0}", file);
+		}
+		readSegment = 0;
+		readOffset = 0;
+	}
+
+	private void writeCheckpoint() throws IOException {
+		File file = new File(folder, CHECKPOINT);
+		File tmp = new File(folder, CHECKPOINT + ".tmp");
+		ByteBuffer buf = ByteBuffer.allocate(16);
+		buf.putLong(readSegment).putLong(readOffset).flip();
+		try (FileChannel out = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buf.hasRemaining()) {
+				out.write(buf);
+			}
+			out.force(false);
+		}
+		try {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private TreeSet<Long> listSegments() {
+		TreeSet<Long> segments = new TreeSet<>();
+		String[] names = folder.list();
+		if (names != null) {
+			for (String name : names) {
+				if (name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+					} catch (NumberFormatException ex) {
+						// Not a segment
+					}
+				}
+			}
+		}
+		return segments;
+	}
+
+	private File segment(long seg) {
+		return new File(folder, String.format("%020d%s", seg, SEGMENT_SUFFIX));
+	}
+
+	private static void readFully(FileChannel in, ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			if (in.read(buf, pos + buf.position()) < 0) {
+				throw new IOException("Unexpected end of journal");
+			}
+		}
+	}
+}
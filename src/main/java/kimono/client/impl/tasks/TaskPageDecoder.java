@@ -0,0 +1,137 @@
+package kimono.client.impl.tasks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import kimono.client.tasks.KCTask;
+
+/**
+ * Decodes a page of Tasks from a Tasks API response body with the Jackson
+ * streaming parser. Each element of the {@code data} array is built into a
+ * {@link Task} and passed to a consumer as soon as it has been read, so only
+ * one Task's JSON is held in memory at a time rather than a tree of the entire
+ * page. The response is expected to look like this:
+ *
+ * <pre>
+ * { "data": [ {task}, {task}, ... ], "paging": { "next": ... } }
+ * </pre>
+ */
+public class TaskPageDecoder {
+
+	/**
+	 * Thread safe once configured, so shared
+	 */
+	private static final JsonFactory sFactory = new JsonFactory();
+
+	private TaskPageDecoder() {
+	}
+
+	/**
+	 * Decode a page of Tasks
+	 *
+	 * @param in       The response body. Not closed by this method.
+	 * @param consumer Receives each Task in the order it appears on the page
+	 * @return true if the response reports more pages ({@code paging.next} is
+	 *         present and not null)
+	 * @throws IOException if the body cannot be read or is not valid JSON
+	 */
+	public static boolean decode(InputStream in, Consumer<KCTask> consumer) throws IOException {
+		boolean more = false;
+		try (JsonParser parser = sFactory.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException(parser, "Expected a JSON object");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ("data".equals(name) && token == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						consumer.accept(new Task(readObject(parser)));
+					}
+				} else if ("paging".equals(name) && token == JsonToken.START_OBJECT) {
+					more = readPaging(parser);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return more;
+	}
+
+	/**
+	 * Read a {@code paging} object, positioned at its start
+	 *
+	 * @return true if {@code next} is present and not null
+	 */
+	private static boolean readPaging(JsonParser parser) throws IOException {
+		boolean more = false;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ("next".equals(name)) {
+				more = token != JsonToken.VALUE_NULL;
+			}
+			parser.skipChildren();
+		}
+		return more;
+	}
+
+	/**
+	 * Read an object, positioned at its start, into a {@link JSONObject}
+	 */
+	private static JSONObject readObject(JsonParser parser) throws IOException {
+		JSONObject obj = new JSONObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			obj.put(name, readValue(parser));
+		}
+		return obj;
+	}
+
+	/**
+	 * Read an array, positioned at its start, into a {@link JSONArray}
+	 */
+	private static JSONArray readArray(JsonParser parser) throws IOException {
+		JSONArray arr = new JSONArray();
+		while (parser.nextToken() != JsonToken.END_ARRAY) {
+			arr.put(readValue(parser));
+		}
+		return arr;
+	}
+
+	/**
+	 * Read the value at the current token as org.json would represent it
+	 */
+	private static Object readValue(JsonParser parser) throws IOException {
+		switch (parser.getCurrentToken()) {
+		case START_OBJECT:
+			return readObject(parser);
+		case START_ARRAY:
+			return readArray(parser);
+		case VALUE_STRING:
+			return parser.getText();
+		case VALUE_NUMBER_INT:
+			return parser.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return parser.getDecimalValue();
+		case VALUE_TRUE:
+			return Boolean.TRUE;
+		case VALUE_FALSE:
+			return Boolean.FALSE;
+		case VALUE_NULL:
+			return JSONObject.NULL;
+		default:
+			throw new JsonParseException(parser, "Unexpected token " + parser.getCurrentToken());
+		}
+	}
+}
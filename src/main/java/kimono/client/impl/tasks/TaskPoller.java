@@ -1,22 +1,46 @@
 package kimono.client.impl.tasks;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.lang3.ObjectUtils;
+import org.json.JSONException;
 
 import kimono.client.KCTenant;
 import kimono.client.KCTenantSupplier;
+import kimono.client.KCTopic;
+import kimono.client.impl.Metrics;
 import kimono.client.tasks.KCTask;
 import kimono.client.tasks.KCTaskAck;
 import kimono.client.tasks.KCTaskApi;
 import kimono.client.tasks.KCTaskHandler;
 import kimono.client.tasks.KCTaskPoller;
 import kimono.client.tasks.KCTaskType;
+import kimono.client.util.JsonUtils;
+import kimono.client.util.ThreadUtils;
+import kimono.client.util.VirtualThreads;
 
 /**
  * Sample implementation of an Event poller.
@@ -37,7 +61,7 @@ public class TaskPoller implements KCTaskPoller {
 	/**
 	 * Flag to stop the loop
 	 */
-	private boolean stop;
+	private volatile boolean stop;
 
 	/**
 	 * Use the managed Tasks API? When true Kimono will manage the delivery of tasks
@@ -72,6 +96,182 @@ public class TaskPoller implements KCTaskPoller {
 	 */
 	private KCTenantSupplier tenantSupplier;
 
+	/**
+	 * Number of tenants to poll concurrently
+	 * @see #setConcurrency(int)
+	 */
+	private int concurrency = 1;
+
+	/**
+	 * Worker pool used to poll tenants when {@link #concurrency} is greater than
+	 * one. Created when the polling loop starts and shut down when it ends.
+	 */
+	private ExecutorService tenantExecutor;
+
+	/**
+	 * Poll each tenant on its own virtual thread where supported
+	 * @see #setVirtualThreads(boolean)
+	 */
+	private boolean virtualThreads = false;
+
+	/**
+	 * Number of ordered lanes Data Events for a tenant are partitioned onto
+	 * @see #setDispatchLanes(int)
+	 */
+	private int lanes = 1;
+
+	/**
+	 * Worker pool shared by the dispatch lanes of all tenants when
+	 * {@link #lanes} is greater than one
+	 */
+	private ExecutorService laneExecutor;
+
+	/**
+	 * Maximum number of acknowledgements sent in one request
+	 * @see #setAckBatching(int, long, TimeUnit)
+	 */
+	private int ackBatchSize = 1;
+
+	/**
+	 * Maximum time in milliseconds an acknowledgement waits to be sent
+	 * @see #setAckBatching(int, long, TimeUnit)
+	 */
+	private long ackBatchDelay = 0;
+
+	/**
+	 * Send each batch of acknowledgements in one request?
+	 * @see #setBulkAck(boolean)
+	 */
+	private boolean bulkAck = false;
+
+	/**
+	 * Maximum number of acknowledgements queued for the background sender
+	 * @see #setAckQueueDepth(int)
+	 */
+	private int ackQueueDepth = 0;
+
+	/**
+	 * Runs the background acknowledgement senders when {@link #ackQueueDepth} is
+	 * greater than zero
+	 */
+	private ExecutorService ackExecutor;
+
+	/**
+	 * Maximum number of pages of Tasks to handle for a tenant in one polling
+	 * interval
+	 * @see #setMaxPagesPerTenant(int)
+	 */
+	private int maxPagesPerTenant = 0;
+
+	/**
+	 * Adapt the polling interval to queue activity?
+	 * @see #setAdaptiveInterval(long, TimeUnit)
+	 */
+	private boolean adaptive = false;
+
+	/**
+	 * The shortest interval in milliseconds between polls when adapting the
+	 * interval to queue activity
+	 */
+	private long minInterval;
+
+	/**
+	 * The interval in milliseconds the polling loop is currently using
+	 * @see #getEffectiveInterval(TimeUnit)
+	 */
+	private volatile long effectiveInterval;
+
+	/**
+	 * Number of Tasks handled during the current polling interval
+	 */
+	private AtomicInteger cycleTasks = new AtomicInteger();
+
+	/**
+	 * Did any tenant stop with Tasks left on its queue during the current
+	 * polling interval?
+	 */
+	private volatile boolean cycleBacklog;
+
+	/**
+	 * Handler deadlines in milliseconds by Task type, then by topic. A null type
+	 * or topic matches any.
+	 * @see #setHandlerDeadline(KCTaskType, KCTopic, long, TimeUnit)
+	 */
+	private Map<KCTaskType, Map<KCTopic, Long>> deadlines = new HashMap<>();
+
+	/**
+	 * How a Task is acknowledged when its handler misses its deadline
+	 */
+	private KCTaskAck.Status timeoutStatus = KCTaskAck.Status.RETRY;
+
+	/**
+	 * Runs handlers that have a deadline. Created by {@link #poll(int, TimeUnit)}
+	 * when any deadline is set.
+	 */
+	private ExecutorService handlerExecutor;
+
+	/**
+	 * The number of completed Task IDs to remember per tenant; 0 to handle
+	 * redelivered Tasks again
+	 * @see #setDedup(int, long, TimeUnit)
+	 */
+	private int dedupCapacity = 0;
+
+	/**
+	 * How long in milliseconds to remember a completed Task ID
+	 */
+	private long dedupTtl;
+
+	/**
+	 * Recently completed Tasks by tenant ID
+	 */
+	private ConcurrentMap<UUID, RecentTaskSet> recentTasks = new ConcurrentHashMap<>();
+
+	/**
+	 * Restore the sequence order of each group's Tasks before handling them?
+	 * @see #setReorder(boolean)
+	 */
+	private boolean reorder = false;
+
+	/**
+	 * Fold consecutive Data Events for the same object into one handler call?
+	 * @see #setCoalesce(boolean)
+	 */
+	private boolean coalesce = false;
+
+	/**
+	 * Reorder buffers by tenant ID
+	 */
+	private ConcurrentMap<UUID, TaskReorderBuffer> reorderBuffers = new ConcurrentHashMap<>();
+
+	/**
+	 * Folder of per-tenant Task journals; null to handle Tasks before they are
+	 * acknowledged
+	 * @see #setInbox(File)
+	 */
+	private File inboxFolder;
+
+	/**
+	 * Journals by tenant ID, opened when a tenant is first polled
+	 */
+	private ConcurrentMap<UUID, TaskJournal> journals = new ConcurrentHashMap<>();
+
+	/**
+	 * Tenants whose journal is being consumed
+	 */
+	private Set<UUID> consuming = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Consumes journals. Created by {@link #poll(int, TimeUnit)} when an inbox
+	 * folder is set.
+	 */
+	private ExecutorService inboxExecutor;
+
+	/**
+	 * Skips tenants that keep failing
+	 */
+	private TenantCircuitBreaker breaker = new TenantCircuitBreaker();
+
 	public TaskPoller() {
 		super();
 	}
@@ -105,6 +305,293 @@ public class TaskPoller implements KCTaskPoller {
 		useManagedTasksApi = flag;
 	}
 
+	/**
+	 * Set the number of tenants to poll concurrently. When greater than one,
+	 * each tenant's Task queue is drained by one of a bounded pool of worker
+	 * threads so a slow tenant no longer stalls the others. Tasks for a tenant
+	 * are always handled in order by a single worker, and a polling interval
+	 * does not end until every tenant has been drained.
+	 * 
+	 * @param threads The number of worker threads; 1 (the default) polls tenants
+	 *                serially on the polling thread
+	 */
+	@Override
+	public void setConcurrency(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+		concurrency = threads;
+	}
+
+	/**
+	 * Poll each tenant on its own virtual thread. Polling is dominated by blocking
+	 * HTTP requests and handler I/O, so on Java 21 or later this lets every tenant
+	 * be polled at once without sizing a pool of platform threads. Dispatch lanes
+	 * also run on virtual threads. Each polling interval still waits for every
+	 * tenant before it ends. Fetching pages and sending acknowledgements hold
+	 * {@link java.util.concurrent.locks.ReentrantLock}s rather than monitors, so
+	 * a virtual thread blocked on a request does not pin its carrier thread. On
+	 * older JVMs a warning is logged and tenants are polled by the pool
+	 * configured with {@link #setConcurrency(int)}.
+	 * 
+	 * @param flag true to use virtual threads where supported
+	 */
+	@Override
+	public void setVirtualThreads(boolean flag) {
+		virtualThreads = flag;
+	}
+
+	/**
+	 * Set the number of lanes to dispatch a tenant's Data Events on. When
+	 * greater than one, consecutive Data Events in a page are partitioned by the
+	 * identity of the object they describe ({@code $sys.id}, or the topic when
+	 * there is none) so Tasks for the same object are handled in order while
+	 * Tasks for different objects are handled in parallel. Any other type of Task
+	 * (e.g. Sync Start, Sync End) waits for the lanes to drain and is handled on
+	 * its own. Acknowledgements are always sent in the order Tasks were received.
+	 * 
+	 * @param lanes The number of lanes; 1 (the default) handles Tasks serially
+	 */
+	@Override
+	public void setDispatchLanes(int lanes) {
+		if (lanes < 1) {
+			throw new IllegalArgumentException("Dispatch lanes must be at least 1");
+		}
+		this.lanes = lanes;
+	}
+
+	/**
+	 * Set how Task acknowledgements are batched. Acknowledgements are collected
+	 * and sent together when a batch fills up, when the oldest has waited longer
+	 * than {@code maxDelay}, and always before the next page of Tasks is
+	 * requested. Batching only saves requests with
+	 * {@link #setBulkAck(boolean)}, so the default is to send each
+	 * acknowledgement as soon as its Task is handled.
+	 * 
+	 * @param size     The maximum number of acknowledgements per request; 1 sends
+	 *                 each acknowledgement as soon as its Task is handled
+	 * @param maxDelay The maximum time an acknowledgement waits to be sent
+	 * @param unit     The unit of {@code maxDelay}
+	 */
+	@Override
+	public void setAckBatching(int size, long maxDelay, TimeUnit unit) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Ack batch size must be at least 1");
+		}
+		ackBatchSize = size;
+		ackBatchDelay = unit.toMillis(maxDelay);
+	}
+
+	/**
+	 * Send acknowledgements from a background sender. When enabled, handling the
+	 * next Task does not wait for the previous acknowledgement to be sent; up to
+	 * {@code depth} acknowledgements per tenant are queued and sent in order.
+	 * The queue is always drained before the next page of Tasks is requested.
+	 * 
+	 * @param depth The maximum number of queued acknowledgements per tenant; 0
+	 *              (the default) sends acknowledgements on the polling thread
+	 */
+	@Override
+	public void setAckQueueDepth(int depth) {
+		if (depth < 0) {
+			throw new IllegalArgumentException("Ack queue depth cannot be negative");
+		}
+		ackQueueDepth = depth;
+	}
+
+	/**
+	 * Send each batch of acknowledgements in a single request. Only enable this
+	 * for a Kimono environment that offers bulk acknowledgement; if a bulk
+	 * request fails, its Tasks are acknowledged one at a time. The default is
+	 * false, which sends one request per acknowledgement.
+	 * 
+	 * @param flag true to acknowledge Tasks in bulk
+	 * @see #setAckBatching(int, long, TimeUnit)
+	 */
+	@Override
+	public void setBulkAck(boolean flag) {
+		bulkAck = flag;
+	}
+
+	/**
+	 * Limit the number of pages of Tasks handled for each tenant in one polling
+	 * interval. A tenant that reaches the limit is resumed in the next interval,
+	 * which keeps one very busy tenant from delaying all the others.
+	 * 
+	 * @param pages The maximum number of pages; 0 (the default) drains each
+	 *              tenant's queue completely
+	 */
+	@Override
+	public void setMaxPagesPerTenant(int pages) {
+		if (pages < 0) {
+			throw new IllegalArgumentException("Max pages cannot be negative");
+		}
+		maxPagesPerTenant = pages;
+	}
+
+	/**
+	 * Adapt the polling interval to queue activity. The interval passed to
+	 * {@link #poll(int, TimeUnit)} becomes a ceiling: the next poll starts
+	 * immediately if any tenant still has Tasks waiting (see
+	 * {@link #setMaxPagesPerTenant(int)}), after {@code minInterval} if Tasks
+	 * were handled, and after an interval that doubles up to the ceiling while
+	 * no Tasks are found.
+	 * 
+	 * @param minInterval The shortest interval between polls
+	 * @param unit        The unit of {@code minInterval}
+	 */
+	@Override
+	public void setAdaptiveInterval(long minInterval, TimeUnit unit) {
+		if (minInterval < 0) {
+			throw new IllegalArgumentException("Minimum interval cannot be negative");
+		}
+		this.adaptive = true;
+		this.minInterval = unit.toMillis(minInterval);
+	}
+
+	/**
+	 * Filter out Tasks that are delivered more than once. The IDs of the most
+	 * recently completed Tasks of each tenant are remembered along with their
+	 * acknowledgement; a Task that is delivered again is acknowledged the same
+	 * way without calling its handler. Only Tasks acknowledged with SUCCESS or
+	 * ERROR are remembered, so a Task acknowledged with RETRY is handled again.
+	 * 
+	 * @param capacity The number of Task IDs to remember per tenant; 0 (the
+	 *                 default) to disable the filter
+	 * @param ttl      How long to remember a Task ID; 0 until it is displaced
+	 * @param unit     The unit of {@code ttl}
+	 */
+	@Override
+	public void setDedup(int capacity, long ttl, TimeUnit unit) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Dedup capacity cannot be negative");
+		}
+		dedupCapacity = capacity;
+		dedupTtl = unit.toMillis(ttl);
+		recentTasks.clear();
+	}
+
+	/**
+	 * Restore the order of Tasks within each group by sequence number before they
+	 * are handled. Each page of Tasks is passed through a
+	 * {@link TaskReorderBuffer} for the tenant: within a group, a Task is held
+	 * until the Tasks before it have been handled, and whatever is still held at
+	 * the end of the page is handled in sequence order. Gaps and duplicates in
+	 * each group's sequence are reported to {@link Metrics}.
+	 * 
+	 * @param flag true to reorder Tasks; false (the default) to handle them in
+	 *             the order they are received
+	 */
+	@Override
+	public void setReorder(boolean flag) {
+		reorder = flag;
+	}
+
+	/**
+	 * Fold consecutive Data Events for the same topic and {@code $sys.id} on a
+	 * page into a single {@link CoalescedTask}, so the handler is called once
+	 * with the final state of the object. An ADD followed by a DELETE is not
+	 * passed to the handler at all. Every original Task is acknowledged with the
+	 * acknowledgement of the coalesced Task. Coalescing happens after
+	 * reordering (see {@link #setReorder(boolean)}); with an inbox (see
+	 * {@link #setInbox(File)}) it applies to each batch of journaled Tasks.
+	 * 
+	 * @param flag true to coalesce Data Events; false (the default) to handle
+	 *             each one
+	 */
+	@Override
+	public void setCoalesce(boolean flag) {
+		coalesce = flag;
+	}
+
+	/**
+	 * Use a durable local inbox. Each page of Tasks is appended to a journal for
+	 * the tenant in {@code folder} and forced to disk, then acknowledged with
+	 * SUCCESS straight away so the tenant's queue drains as fast as the journal
+	 * can be written. A consumer for each tenant handles the journaled Tasks in
+	 * order on a separate thread and checkpoints its progress; after a restart
+	 * it resumes from the checkpoint. Acknowledgements returned by handlers are
+	 * logged rather than sent to Kimono: a Task acknowledged with RETRY is
+	 * handled again on the next polling interval, before any later Task.
+	 * Coalescing and dispatch lanes apply to each batch the consumer reads.
+	 * 
+	 * @param folder The inbox folder, or null (the default) to handle each Task
+	 *               before it is acknowledged
+	 */
+	@Override
+	public void setInbox(File folder) {
+		inboxFolder = folder;
+	}
+
+	/**
+	 * Limit how long a handler may take. A handler with a deadline runs on its own
+	 * thread while the polling thread waits for it; if the deadline passes the
+	 * handler is interrupted and the Task is acknowledged with the status set by
+	 * {@link #setHandlerTimeoutStatus(KCTaskAck.Status)}, so one slow call costs
+	 * a single Task rather than the whole page. The most specific deadline wins:
+	 * type and topic, then type, then topic, then the default.
+	 * 
+	 * @param type     The Task type, or null for any type
+	 * @param topic    The topic, or null for any topic
+	 * @param deadline The deadline; 0 for none
+	 * @param unit     The unit of {@code deadline}
+	 */
+	@Override
+	public void setHandlerDeadline(KCTaskType type, KCTopic topic, long deadline, TimeUnit unit) {
+		if (deadline < 0) {
+			throw new IllegalArgumentException("Handler deadline cannot be negative");
+		}
+		deadlines.computeIfAbsent(type, t -> new HashMap<>()).put(topic, unit.toMillis(deadline));
+	}
+
+	/**
+	 * Set how a Task is acknowledged when its handler misses its deadline
+	 * 
+	 * @param status {@link KCTaskAck.Status#RETRY} (the default) to have the Task
+	 *               delivered again, or {@link KCTaskAck.Status#ERROR}
+	 */
+	@Override
+	public void setHandlerTimeoutStatus(KCTaskAck.Status status) {
+		if (status == KCTaskAck.Status.SUCCESS) {
+			throw new IllegalArgumentException("A handler that times out cannot succeed");
+		}
+		timeoutStatus = status;
+	}
+
+	/**
+	 * Configure the per-tenant circuit breaker. A tenant that fails to poll
+	 * {@code threshold} times in a row is skipped for {@code cooldown}, then
+	 * polled once on trial; each further failure doubles the cool-down up to
+	 * {@code maxCooldown}. Other tenants are polled as usual throughout.
+	 * 
+	 * @param threshold   The number of consecutive failures that quarantines a
+	 *                    tenant (default 3)
+	 * @param cooldown    The first cool-down (default 30 seconds)
+	 * @param maxCooldown The longest cool-down (default 30 minutes)
+	 * @param unit        The unit of {@code cooldown} and {@code maxCooldown}
+	 */
+	@Override
+	public void setCircuitBreaker(int threshold, long cooldown, long maxCooldown, TimeUnit unit) {
+		breaker.configure(threshold, cooldown, maxCooldown, unit);
+	}
+
+	/**
+	 * Get the circuit breaker, e.g. to report which tenants are quarantined
+	 */
+	public TenantCircuitBreaker getCircuitBreaker() {
+		return breaker;
+	}
+
+	/**
+	 * Get the interval the polling loop is currently using
+	 * 
+	 * @param unit The unit to return the interval in
+	 */
+	@Override
+	public long getEffectiveInterval(TimeUnit unit) {
+		return unit.convert(effectiveInterval, TimeUnit.MILLISECONDS);
+	}
+
 	/**
 	 * Start the polling loop. Each iteration of the loop requests the next batch of
 	 * Events from Kimono for each Integration tenant. Each Event is delegated to
@@ -120,80 +607,629 @@ public class TaskPoller implements KCTaskPoller {
 		if (tenantSupplier == null) {
 			throw new IllegalStateException("No supplier of TenantInfo");
 		}
-		do {
-			// Iterator all tenants...
-			long ms = System.currentTimeMillis();
-			pollTenants();
+		boolean virtual = virtualThreads && VirtualThreads.isSupported();
+		if (virtualThreads && !virtual) {
+			LOGGER.log(Level.WARNING, "Virtual threads require Java 21 or later; polling {0} tenants at a time",
+					concurrency);
+		}
+		if (virtual) {
+			tenantExecutor = VirtualThreads.newExecutor("kimono-tenant");
+		} else if (concurrency > 1) {
+			tenantExecutor = Executors.newFixedThreadPool(concurrency, ThreadUtils.newThreadFactory("kimono-tenant"));
+		}
+		if (lanes > 1) {
+			laneExecutor = virtual ? VirtualThreads.newExecutor("kimono-lane")
+					: Executors.newFixedThreadPool(concurrency * lanes, ThreadUtils.newThreadFactory("kimono-lane"));
+		}
+		if (ackQueueDepth > 0) {
+			ackExecutor = Executors.newCachedThreadPool(ThreadUtils.newThreadFactory("kimono-ack"));
+		}
+		if (inboxFolder != null) {
+			inboxExecutor = virtual ? VirtualThreads.newExecutor("kimono-inbox")
+					: Executors.newCachedThreadPool(ThreadUtils.newThreadFactory("kimono-inbox"));
+		}
+		if (!deadlines.isEmpty()) {
+			// Unbounded, so a hung handler cannot starve the handlers behind it
+			handlerExecutor = virtual ? VirtualThreads.newExecutor("kimono-handler")
+					: Executors.newCachedThreadPool(ThreadUtils.newThreadFactory("kimono-handler"));
+		}
+		effectiveInterval = adaptive ? minInterval : unit.toMillis(interval);
+		try {
+			do {
+				// Iterator all tenants...
+				long ms = System.currentTimeMillis();
+				long start = System.nanoTime();
+				cycleTasks.set(0);
+				cycleBacklog = false;
+				pollTenants();
+				Metrics.getMetrics().cycled(cycleTasks.get(), System.nanoTime() - start);
 
-			// Sleep if there is any time remaining in this polling interval
-			long delay = unit.toMillis(interval) - (System.currentTimeMillis() - ms);
-			if (delay > 0) {
-				LOGGER.log(Level.INFO, "Next request in {0}ms", delay);
-				TimeUnit.MILLISECONDS.sleep(delay);
+				// Sleep if there is any time remaining in this polling interval
+				effectiveInterval = nextInterval(unit.toMillis(interval));
+				long delay = effectiveInterval - (System.currentTimeMillis() - ms);
+				if (delay > 0) {
+					LOGGER.log(Level.INFO, "Next request in {0}ms", delay);
+					TimeUnit.MILLISECONDS.sleep(delay);
+				}
+			} while (!stop);
+		} finally {
+			if (tenantExecutor != null) {
+				tenantExecutor.shutdownNow();
+				tenantExecutor = null;
+			}
+			if (laneExecutor != null) {
+				laneExecutor.shutdownNow();
+				laneExecutor = null;
+			}
+			if (ackExecutor != null) {
+				ackExecutor.shutdownNow();
+				ackExecutor = null;
 			}
-		} while (!stop);
+			if (handlerExecutor != null) {
+				handlerExecutor.shutdownNow();
+				handlerExecutor = null;
+			}
+			if (inboxExecutor != null) {
+				inboxExecutor.shutdownNow();
+				inboxExecutor.awaitTermination(10, TimeUnit.SECONDS);
+				inboxExecutor = null;
+			}
+			for (TaskJournal journal : journals.values()) {
+				try {
+					journal.close();
+				} catch (IOException ex) {
+					LOGGER.log(Level.WARNING, "Error closing journal", ex);
+				}
+			}
+			journals.clear();
+		}
+	}
+
+	/**
+	 * Determine the interval to use after the polling interval that just ended
+	 * 
+	 * @param ceiling The interval passed to {@link #poll(int, TimeUnit)} in
+	 *                milliseconds
+	 * @return The interval in milliseconds
+	 * @see #setAdaptiveInterval(long, TimeUnit)
+	 */
+	protected long nextInterval(long ceiling) {
+		if (!adaptive) {
+			return ceiling;
+		}
+		if (cycleBacklog) {
+			return 0;
+		}
+		if (cycleTasks.get() > 0) {
+			return Math.min(minInterval, ceiling);
+		}
+		// Idle: back off exponentially
+		return Math.min(ceiling, Math.max(effectiveInterval * 2, Math.max(minInterval, 1)));
 	}
 
 	/**
-	 * Stop the polling loop
+	 * Stop the polling loop. Not synchronized so it can be called from another
+	 * thread while {@link #poll(int, TimeUnit)} is running.
 	 */
 	@Override
-	public synchronized void stop() {
+	public void stop() {
 		stop = true;
 	}
 
 	/**
-	 * Poll the next page of Tasks for each tenant
+	 * Poll the next page of Tasks for each tenant. When polling concurrently the
+	 * tenants are handed to the worker pool and this method returns once all of
+	 * them have been drained. Each tenant's failures are contained by
+	 * {@link #pollTenantGuarded(KCTenant)}; a failure listing the tenants is
+	 * logged and ends the pass with the tenants listed so far.
 	 */
 	protected void pollTenants() {
-		tenantSupplier.reset();
-		while (tenantSupplier.hasNext()) {
-			KCTenant tenant = tenantSupplier.next();
-
-			// If a predicate is specified it must approve the tenant
-			if (predicate == null || predicate.test(tenant)) {
-				KCTaskApi tasks = newTaskApi(tenant);
-				while (tasks.hasNext()) {
-					KCTask task = tasks.next();
-					if( task != null ) {
-						// Note it is possible for hasNext() to return true because
-						// it believes another page is available from the server, but
-						// when queried the server return no results and therefore
-						// next() returns null. Do not assume hasNext() means next()
-						// will return a non-null value.
+		List<Future<?>> pending = new ArrayList<>();
+		try {
+			tenantSupplier.reset();
+			while (tenantSupplier.hasNext()) {
+				KCTenant tenant = tenantSupplier.next();
+
+				// If a predicate is specified it must approve the tenant
+				if (tenant != null && (predicate == null || predicate.test(tenant))) {
+					if (!breaker.allow(tenant)) {
+						LOGGER.log(Level.FINE, "Skipping quarantined tenant {0}", tenant.getTenantInfo().getId());
+					} else if (tenantExecutor != null) {
+						pending.add(tenantExecutor.submit(() -> pollTenantGuarded(tenant)));
+					} else {
+						pollTenantGuarded(tenant);
+					}
+				}
+			}
+		} catch (RuntimeException ex) {
+			LOGGER.log(Level.WARNING, "Error listing tenants; retrying next polling interval", ex);
+		}
+
+		// Wait for every tenant already handed to the pool
+		for (Future<?> f : pending) {
+			ThreadUtils.await(f);
+		}
+
+		// No tenant is being polled, so the reorder buffers can be swept; a buffer
+		// left with no groups belongs to a tenant that has gone quiet or away
+		reorderBuffers.values().removeIf(TaskReorderBuffer::evictIdle);
+	}
+
+	/**
+	 * Poll a tenant, recording the outcome with the circuit breaker. A failure is
+	 * logged rather than thrown so it does not stop the other tenants.
+	 * 
+	 * @param tenant The tenant
+	 */
+	private void pollTenantGuarded(KCTenant tenant) {
+		try {
+			pollTenant(tenant);
+			breaker.success(tenant);
+		} catch (RuntimeException ex) {
+			long cooldown = breaker.failure(tenant, ex);
+			if (cooldown > 0) {
+				LOGGER.log(Level.WARNING, "Quarantining tenant " + tenant.getTenantInfo().getId() + " for "
+						+ cooldown + "ms after repeated failures", ex);
+				Metrics.getMetrics().quarantined(tenant, TimeUnit.MILLISECONDS.toNanos(cooldown));
+			} else {
+				LOGGER.log(Level.WARNING, "Error polling tenant " + tenant.getTenantInfo().getId(), ex);
+			}
+		}
+	}
+
+	/**
+	 * Drain the Task queue of a single tenant, handling and acknowledging each
+	 * Task in order
+	 * 
+	 * @param tenant The tenant
+	 */
+	protected void pollTenant(KCTenant tenant) {
+		KCTaskApi tasks = newTaskApi(tenant);
+		TaskAckSink acks = ackExecutor != null
+				? new TaskAckPipeline(tasks, ackExecutor, ackQueueDepth, ackBatchSize, ackBatchDelay, TimeUnit.MILLISECONDS)
+				: new TaskAckBatcher(tasks, ackBatchSize, ackBatchDelay, TimeUnit.MILLISECONDS);
+		long start = System.nanoTime();
+		int pages = 0;
+		int handled = 0;
+		boolean backlog = false;
+		while (tasks.hasNext()) {
+			if (maxPagesPerTenant > 0 && pages++ >= maxPagesPerTenant) {
+				// Leave the rest for the next polling interval
+				cycleBacklog = backlog = true;
+				break;
+			}
+
+			// Note it is possible for hasNext() to return true because
+			// it believes another page is available from the server, but
+			// when queried the server return no results and therefore
+			// the page is empty.
+			List<KCTask> page = tasks.nextPage();
+			cycleTasks.addAndGet(page.size());
+			handled += page.size();
+			if (reorder) {
+				page = reorderPage(tenant, page);
+			}
+			if (inboxFolder != null) {
+				journalPage(tenant, acks, page);
+			} else {
+				if (coalesce) {
+					page = CoalescedTask.coalesce(page);
+				}
+				if (laneExecutor != null) {
+					handlePageInLanes(tenant, acks, page);
+				} else {
+					for (KCTask task : page) {
 						KCTaskAck ack = delegateTask(tenant, task);
-						tasks.ackTask(task, ack);
+						ack(acks, task, ack);
+					}
+				}
+			}
+
+			// Every Task in this page must be acknowledged before the next page
+			// is requested
+			acks.flush();
+		}
+		Metrics.getMetrics().polled(tenant, handled, backlog, System.nanoTime() - start);
+		if (inboxFolder != null) {
+			consumeInbox(tenant);
+		}
+	}
+
+	/**
+	 * Acknowledge a Task, or every Task folded into a {@link CoalescedTask}
+	 */
+	private void ack(TaskAckSink acks, KCTask task, KCTaskAck ack) {
+		if (task instanceof CoalescedTask) {
+			for (KCTask t : ((CoalescedTask) task).getTasks()) {
+				acks.add(t, ack);
+			}
+		} else {
+			acks.add(task, ack);
+		}
+	}
+
+	/**
+	 * Pass a page of Tasks through the tenant's reorder buffer
+	 * 
+	 * @return Every Task on the page, in sequence order within each group
+	 * @see #setReorder(boolean)
+	 */
+	protected List<KCTask> reorderPage(KCTenant tenant, List<KCTask> page) {
+		TaskReorderBuffer buffer = reorderBuffers.computeIfAbsent(tenant.getTenantInfo().getId(),
+				id -> new TaskReorderBuffer(tenant));
+		List<KCTask> ordered = new ArrayList<>(page.size());
+		for (KCTask task : page) {
+			buffer.offer(task, ordered::add);
+		}
+		// Every Task on the page is acknowledged before the next page is fetched,
+		// so nothing can be held over
+		buffer.flush(ordered::add);
+		return ordered;
+	}
+
+	/**
+	 * Append a page of Tasks to the tenant's journal and acknowledge them
+	 * 
+	 * @see #setInbox(File)
+	 */
+	protected void journalPage(KCTenant tenant, TaskAckSink acks, List<KCTask> page) {
+		try {
+			journal(tenant).append(page);
+		} catch (IOException ex) {
+			// Leave the page unacknowledged so it is delivered again
+			throw new UncheckedIOException("Cannot journal Tasks for tenant " + tenant.getTenantInfo().getId(), ex);
+		}
+		for (KCTask task : page) {
+			acks.add(task, TaskAck.success());
+		}
+	}
+
+	/**
+	 * Start consuming a tenant's journal unless it is already being consumed
+	 * 
+	 * @see #setInbox(File)
+	 */
+	private void consumeInbox(KCTenant tenant) {
+		UUID id = tenant.getTenantInfo().getId();
+		if (consuming.add(id)) {
+			try {
+				inboxExecutor.execute(() -> {
+					try {
+						consumeJournal(tenant, journal(tenant));
+					} catch (IOException | RuntimeException ex) {
+						LOGGER.log(Level.SEVERE, "Error consuming journal for tenant " + id, ex);
+					} finally {
+						consuming.remove(id);
+					}
+				});
+			} catch (RejectedExecutionException ex) {
+				// Shutting down; the journal is consumed after a restart
+				consuming.remove(id);
+			}
+		}
+	}
+
+	/**
+	 * Handle journaled Tasks in order, checkpointing after each batch, until the
+	 * journal is empty or a handler asks for a Task to be retried. Each batch is
+	 * coalesced and dispatched on lanes just as a page is when there is no inbox.
+	 */
+	private void consumeJournal(KCTenant tenant, TaskJournal journal) throws IOException {
+		while (!Thread.currentThread().isInterrupted()) {
+			List<TaskJournal.Entry> batch = journal.read(ackBatchSize);
+			if (batch.isEmpty()) {
+				return;
+			}
+			JournalAcks acks = new JournalAcks(batch);
+			List<KCTask> page = acks.getTasks();
+			try {
+				if (coalesce) {
+					page = CoalescedTask.coalesce(page);
+				}
+				if (laneExecutor != null) {
+					handlePageInLanes(tenant, acks, page);
+				} else {
+					for (KCTask task : page) {
+						ack(acks, task, delegateTask(tenant, task));
+						if (acks.isRetrying()) {
+							break;
+						}
 					}
 				}
+			} finally {
+				TaskJournal.Entry done = acks.getCheckpoint();
+				if (done != null) {
+					journal.checkpoint(done);
+				}
+			}
+			if (acks.isRetrying()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get a tenant's journal, opening it if necessary
+	 */
+	private TaskJournal journal(KCTenant tenant) throws IOException {
+		UUID id = tenant.getTenantInfo().getId();
+		TaskJournal journal = journals.get(id);
+		if (journal == null) {
+			synchronized (journals) {
+				journal = journals.get(id);
+				if (journal == null) {
+					journal = new TaskJournal(new File(inboxFolder, id.toString()), TaskJournal.DEFAULT_SEGMENT_SIZE);
+					journals.put(id, journal);
+				}
 			}
 		}
+		return journal;
+	}
+
+	/**
+	 * Handle a page of Tasks on ordered lanes
+	 * 
+	 * @see #setDispatchLanes(int)
+	 */
+	protected void handlePageInLanes(KCTenant tenant, TaskAckSink acks, List<KCTask> page) {
+		int start = 0;
+		while (start < page.size()) {
+			int end = start;
+			while (end < page.size() && page.get(end).getType() == KCTaskType.DATA_EVENT) {
+				end++;
+			}
+			if (end > start) {
+				List<KCTask> run = page.subList(start, end);
+				KCTaskAck[] results = delegateInLanes(tenant, run);
+				for (int i = 0; i < run.size(); i++) {
+					ack(acks, run.get(i), results[i]);
+				}
+				start = end;
+			} else {
+				// Not a Data Event; handle it on its own once the lanes are idle
+				KCTask task = page.get(start++);
+				ack(acks, task, delegateTask(tenant, task));
+			}
+		}
+	}
+
+	/**
+	 * Partition a run of Data Events onto lanes, handle each lane in parallel,
+	 * and wait for all of them
+	 * 
+	 * @return The acknowledgements, in the same order as {@code run}
+	 */
+	private KCTaskAck[] delegateInLanes(KCTenant tenant, List<KCTask> run) {
+		List<List<Integer>> partitions = new ArrayList<>(lanes);
+		for (int i = 0; i < lanes; i++) {
+			partitions.add(new ArrayList<>());
+		}
+		for (int i = 0; i < run.size(); i++) {
+			int lane = Math.floorMod(Objects.hashCode(partitionKey(run.get(i))), lanes);
+			partitions.get(lane).add(i);
+		}
+
+		KCTaskAck[] acks = new KCTaskAck[run.size()];
+		List<Future<?>> pending = new ArrayList<>();
+		for (List<Integer> partition : partitions) {
+			if (!partition.isEmpty()) {
+				pending.add(laneExecutor.submit(() -> {
+					for (int i : partition) {
+						acks[i] = delegateTask(tenant, run.get(i));
+					}
+				}));
+			}
+		}
+		for (Future<?> f : pending) {
+			ThreadUtils.await(f);
+		}
+		return acks;
+	}
+
+	/**
+	 * Get the key used to assign a Data Event to a dispatch lane: the
+	 * {@code $sys.id} of the object, or its topic if it has none
+	 */
+	protected Object partitionKey(KCTask task) {
+		try {
+			String id = JsonUtils.sys(task.getAttributes(), "id");
+			if (id != null) {
+				return id;
+			}
+		} catch (JSONException ex) {
+			// No attributes; fall back to the topic
+		}
+		return task.getTopic();
 	}
 
 	protected KCTaskApi newTaskApi(KCTenant tenant) {
 		if (useManagedTasksApi) {
-			return new AdminTasksApiNonOAS(tenant);
+			return new AdminTasksApiNonOAS(tenant).setBulkAck(bulkAck);
 		} else {
-			return new AdminTasksApiNonOAS(tenant);
+			return new AdminTasksApiNonOAS(tenant).setBulkAck(bulkAck);
 		}
 	}
 
 	protected KCTaskAck delegateTask(KCTenant tenant, KCTask tsk) {
+		if (tsk instanceof CoalescedTask && ((CoalescedTask) tsk).isEmpty()) {
+			// Added and deleted within the page; nothing to apply
+			return TaskAck.success();
+		}
+		RecentTaskSet recent = null;
+		if (dedupCapacity > 0 && tsk.getId() != null) {
+			recent = recentTasks.computeIfAbsent(tenant.getTenantInfo().getId(),
+					id -> new RecentTaskSet(dedupCapacity, dedupTtl));
+			KCTaskAck previous;
+			synchronized (recent) {
+				previous = recent.get(tsk.getId());
+			}
+			if (previous != null) {
+				LOGGER.log(Level.FINE, "Task {0} was already handled; acknowledging it again", tsk.getId());
+				Metrics.getMetrics().duplicate(tenant, tsk);
+				return previous;
+			}
+		}
+		KCTaskAck ack = invokeHandler(tenant, tsk);
+		if (recent != null && ack != null && ack.getStatus() != KCTaskAck.Status.RETRY) {
+			synchronized (recent) {
+				recent.put(tsk.getId(), ack);
+			}
+		}
+		return ack;
+	}
+
+	/**
+	 * Call the handler registered for a Task
+	 */
+	private KCTaskAck invokeHandler(KCTenant tenant, KCTask tsk) {
+		if (tsk.getType() == KCTaskType.LIFECYCLE_EVENT && tenantSupplier != null) {
+			// A tenant has been installed, activated or uninstalled; list tenants
+			// again on the next pass rather than waiting for a cache to expire
+			tenantSupplier.invalidate();
+		}
 		KCTaskHandler handler = ObjectUtils.firstNonNull(handlers.get(tsk.getType()), defaultHandler);
 		if (handler != null) {
+			long start = System.nanoTime();
+			KCTaskAck ack;
+			long deadline = handlerExecutor != null ? getHandlerDeadline(tsk) : 0;
 			try {
-				return handler.handle(tenant, tsk);
+				ack = deadline > 0 ? handleWithDeadline(handler, tenant, tsk, deadline) : handler.handle(tenant, tsk);
 			} catch( Exception ex ) {
 				// Uncaught exception must ack the task (as an error) to avoid deadlock
 				LOGGER.log(Level.SEVERE,ex.getMessage());
-				return TaskAck.error("Unexpected error",ex);
+				ack = TaskAck.error("Unexpected error",ex);
 			}
+			Metrics.getMetrics().handled(tenant, tsk, ack, System.nanoTime() - start);
+			return ack;
 		}
 		
 		return TaskAck.success();
 	}
 
+	/**
+	 * Get the deadline for a Task's handler
+	 * 
+	 * @return The deadline in milliseconds; 0 for none
+	 * @see #setHandlerDeadline(KCTaskType, KCTopic, long, TimeUnit)
+	 */
+	protected long getHandlerDeadline(KCTask tsk) {
+		for (KCTaskType type : new KCTaskType[] { tsk.getType(), null }) {
+			Map<KCTopic, Long> byTopic = deadlines.get(type);
+			if (byTopic != null) {
+				Long deadline = byTopic.containsKey(tsk.getTopic()) ? byTopic.get(tsk.getTopic()) : byTopic.get(null);
+				if (deadline != null) {
+					return deadline;
+				}
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Call a handler on the handler executor and wait no longer than its deadline
+	 * for the acknowledgement
+	 */
+	private KCTaskAck handleWithDeadline(KCTaskHandler handler, KCTenant tenant, KCTask tsk, long deadline)
+			throws Exception {
+		Future<KCTaskAck> result = handlerExecutor.submit(() -> handler.handle(tenant, tsk));
+		try {
+			return result.get(deadline, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException ex) {
+			throw ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex;
+		} catch (TimeoutException ex) {
+			result.cancel(true);
+			String msg = "Handler did not complete within " + deadline + "ms";
+			LOGGER.log(Level.WARNING, "{0}: {1}", new Object[] { msg, tsk });
+			return timeoutStatus == KCTaskAck.Status.ERROR ? TaskAck.error(msg) : TaskAck.retry(msg);
+		} catch (InterruptedException ex) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			return TaskAck.retry("Interrupted");
+		}
+	}
+
 	@Override
 	public void setPredicate(Predicate<KCTenant> predicate) {
 		this.predicate = predicate;
 	}
+
+	/**
+	 * Collects the acknowledgements of a batch of journaled Tasks, logging
+	 * failures rather than sending them, and tracks how far the journal can be
+	 * checkpointed: up to the last Task acknowledged before the first RETRY,
+	 * along with any skipped records that follow it
+	 */
+	private static class JournalAcks implements TaskAckSink {
+
+		private final List<TaskJournal.Entry> batch;
+
+		/**
+		 * Index in the batch of each Task
+		 */
+		private final Map<KCTask, Integer> index = new IdentityHashMap<>();
+
+		/**
+		 * Number of entries at the start of the batch that have been handled
+		 */
+		private int handled;
+
+		private boolean retrying;
+
+		JournalAcks(List<TaskJournal.Entry> batch) {
+			this.batch = batch;
+		}
+
+		/**
+		 * Get the Tasks in the batch, leaving out skipped records
+		 */
+		List<KCTask> getTasks() {
+			List<KCTask> tasks = new ArrayList<>(batch.size());
+			for (int i = 0; i < batch.size(); i++) {
+				KCTask task = batch.get(i).getTask();
+				if (task != null) {
+					index.put(task, i);
+					tasks.add(task);
+				}
+			}
+			return tasks;
+		}
+
+		boolean isRetrying() {
+			return retrying;
+		}
+
+		/**
+		 * Get the entry to checkpoint, or null if nothing can be checkpointed
+		 */
+		TaskJournal.Entry getCheckpoint() {
+			int end = handled;
+			while (end < batch.size() && batch.get(end).getTask() == null) {
+				end++;
+			}
+			return end > 0 ? batch.get(end - 1) : null;
+		}
+
+		@Override
+		public void add(KCTask task, KCTaskAck ack) {
+			if (retrying) {
+				// Handled again on the next polling interval
+				return;
+			}
+			if (ack != null && ack.getStatus() == KCTaskAck.Status.RETRY) {
+				LOGGER.log(Level.INFO, "Retrying {0} on the next polling interval: {1}",
+						new Object[] { task.getId(), ack.getMessage() });
+				retrying = true;
+				return;
+			}
+			if (ack != null && ack.getStatus() == KCTaskAck.Status.ERROR) {
+				LOGGER.log(Level.WARNING, "Task {0} failed: {1}", new Object[] { task.getId(), ack.getMessage() });
+			}
+			handled = index.get(task) + 1;
+		}
+
+		@Override
+		public void flush() {
+			// Nothing is sent
+		}
+	}
 }
@@ -0,0 +1,236 @@
+package kimono.client.impl.tasks;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import kimono.client.KCTenant;
+import kimono.client.impl.Metrics;
+import kimono.client.tasks.KCTask;
+
+/**
+ * Restores the order of a tenant's Tasks within each group using their
+ * sequence numbers ({@link KCTask#getGroupId()} and
+ * {@link KCTask#getSequence()}).
+ * <p>
+ *
+ * The buffer remembers the last sequence released for each group. A Task that
+ * follows it directly is released at once, together with any buffered Tasks
+ * that follow on from it; a Task that arrives early is held, sorted by
+ * sequence, until the Tasks before it arrive or the buffer is flushed. When
+ * held Tasks are flushed past a missing sequence the gap is reported to
+ * {@link kimono.client.KCMetrics#sequenceGap(KCTenant, String, long)}, and a
+ * sequence seen twice is reported to
+ * {@link kimono.client.KCMetrics#sequenceDuplicate(KCTenant, String, long)}
+ * and released as-is. Tasks without a group or sequence are barriers:
+ * everything held is flushed before they are released. Flushed groups are
+ * released in the order they were first seen.
+ * <p>
+ *
+ * A group that holds nothing and has not been offered a Task for the idle
+ * time is forgotten by {@link #evictIdle()}; if it is seen again, its sequence
+ * starts afresh.
+ * <p>
+ *
+ * Not thread safe.
+ */
+public class TaskReorderBuffer {
+
+	private static final Logger LOGGER = Logger.getLogger(TaskReorderBuffer.class.getName());
+
+	public static final long DEFAULT_IDLE_TIME = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * The Tasks held for a group, sorted by sequence
+	 */
+	private static class Group {
+
+		/**
+		 * The last sequence released; -1 until a Task has been released
+		 */
+		long last = -1;
+
+		/**
+		 * When a Task was last offered
+		 */
+		long touched;
+
+		long[] sequences;
+
+		KCTask[] tasks;
+
+		int size;
+
+		void insert(long sequence, KCTask task) {
+			if (sequences == null) {
+				sequences = new long[8];
+				tasks = new KCTask[8];
+			} else if (size == sequences.length) {
+				sequences = Arrays.copyOf(sequences, size * 2);
+				tasks = Arrays.copyOf(tasks, size * 2);
+			}
+			int i = size;
+			while (i > 0 && sequences[i - 1] > sequence) {
+				sequences[i] = sequences[i - 1];
+				tasks[i] = tasks[i - 1];
+				i--;
+			}
+			sequences[i] = sequence;
+			tasks[i] = task;
+			size++;
+		}
+
+		boolean contains(long sequence) {
+			return size > 0 && Arrays.binarySearch(sequences, 0, size, sequence) >= 0;
+		}
+
+		/**
+		 * Remove the first {@code n} Tasks
+		 */
+		void removeFirst(int n) {
+			System.arraycopy(sequences, n, sequences, 0, size - n);
+			System.arraycopy(tasks, n, tasks, 0, size - n);
+			Arrays.fill(tasks, size - n, size, null);
+			size -= n;
+		}
+	}
+
+	private final KCTenant tenant;
+
+	/**
+	 * Groups in the order they were first seen
+	 */
+	private final Map<String, Group> groups = new LinkedHashMap<>();
+
+	private final long idleTime;
+
+	/**
+	 * The number of Tasks held
+	 */
+	private int held;
+
+	/**
+	 * @param tenant The tenant the Tasks belong to, for reporting
+	 */
+	public TaskReorderBuffer(KCTenant tenant) {
+		this(tenant, DEFAULT_IDLE_TIME);
+	}
+
+	/**
+	 * @param tenant   The tenant the Tasks belong to, for reporting
+	 * @param idleTime How long in milliseconds an empty group is remembered after
+	 *                 its last Task
+	 */
+	public TaskReorderBuffer(KCTenant tenant, long idleTime) {
+		this.tenant = tenant;
+		this.idleTime = idleTime;
+	}
+
+	/**
+	 * Add a Task, releasing it and any Tasks that can now follow it
+	 *
+	 * @param task    The Task
+	 * @param release Receives released Tasks in order
+	 */
+	public void offer(KCTask task, Consumer<KCTask> release) {
+		String groupId = task.getGroupId();
+		long sequence = task.getSequence();
+		if (groupId == null || sequence < 0) {
+			flush(release);
+			release.accept(task);
+			return;
+		}
+
+		Group group = groups.computeIfAbsent(groupId, g -> new Group());
+		group.touched = System.currentTimeMillis();
+		if ((group.last >= 0 && sequence <= group.last) || group.contains(sequence)) {
+			duplicate(groupId, sequence);
+			release.accept(task);
+		} else if (group.last >= 0 && sequence == group.last + 1) {
+			release.accept(task);
+			group.last = sequence;
+			releaseRun(group, release);
+		} else {
+			group.insert(sequence, task);
+			held++;
+		}
+	}
+
+	/**
+	 * Release every Task held, in sequence order within each group, reporting any
+	 * gaps
+	 *
+	 * @param release Receives released Tasks in order
+	 */
+	public void flush(Consumer<KCTask> release) {
+		if (held == 0) {
+			return;
+		}
+		groups.forEach((groupId, group) -> {
+			for (int i = 0; i < group.size; i++) {
+				long sequence = group.sequences[i];
+				if (group.last >= 0 && sequence > group.last + 1) {
+					gap(groupId, group.last + 1, sequence);
+				}
+				release.accept(group.tasks[i]);
+				group.last = sequence;
+			}
+			group.removeFirst(group.size);
+		});
+		held = 0;
+	}
+
+	/**
+	 * Get the number of Tasks held
+	 */
+	public int size() {
+		return held;
+	}
+
+	/**
+	 * Forget the groups that hold nothing and have been idle for the idle time
+	 *
+	 * @return true if no groups are left
+	 */
+	public boolean evictIdle() {
+		long now = System.currentTimeMillis();
+		for (Iterator<Group> it = groups.values().iterator(); it.hasNext();) {
+			Group group = it.next();
+			if (group.size == 0 && now - group.touched >= idleTime) {
+				it.remove();
+			}
+		}
+		return groups.isEmpty();
+	}
+
+	/**
+	 * Release the held Tasks that follow on directly from the last one released
+	 */
+	private void releaseRun(Group group, Consumer<KCTask> release) {
+		int n = 0;
+		while (n < group.size && group.sequences[n] == group.last + 1) {
+			release.accept(group.tasks[n]);
+			group.last = group.sequences[n++];
+		}
+		if (n > 0) {
+			group.removeFirst(n);
+			held -= n;
+		}
+	}
+
+	private void gap(String groupId, long expected, long sequence) {
+		LOGGER.log(Level.FINE, "Group {0} is missing sequences {1} to {2}",
+				new Object[] { groupId, expected, sequence - 1 });
+		Metrics.getMetrics().sequenceGap(tenant, groupId, sequence - expected);
+	}
+
+	private void duplicate(String groupId, long sequence) {
+		LOGGER.log(Level.FINE, "Group {0} sequence {1} was delivered more than once", new Object[] { groupId, sequence });
+		Metrics.getMetrics().sequenceDuplicate(tenant, groupId, sequence);
+	}
+}
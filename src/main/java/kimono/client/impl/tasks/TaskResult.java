@@ -0,0 +1,31 @@
+package kimono.client.impl.tasks;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+import kimono.client.tasks.KCTaskResult;
+
+public class TaskResult implements KCTaskResult {
+
+	private KCTask task;
+	private KCTaskAck ack;
+
+	public TaskResult(KCTask task, KCTaskAck ack) {
+		this.task = task;
+		this.ack = ack;
+	}
+
+	@Override
+	public KCTask getTask() {
+		return task;
+	}
+
+	@Override
+	public KCTaskAck getAck() {
+		return ack;
+	}
+
+	@Override
+	public String toString() {
+		return task.getId() + " " + ack;
+	}
+}
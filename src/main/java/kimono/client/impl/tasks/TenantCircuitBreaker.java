@@ -0,0 +1,211 @@
+package kimono.client.impl.tasks;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import kimono.client.KCTenant;
+
+/**
+ * Tracks polling failures per tenant so one tenant with broken credentials or
+ * an unreachable SIS does not stop the polling loop for everyone else.
+ * <p>
+ *
+ * A tenant's circuit is {@link State#CLOSED} while it is healthy. After
+ * {@code threshold} consecutive failures it opens and the tenant is skipped
+ * until a cool-down has passed. The tenant is then polled once more
+ * ({@link State#HALF_OPEN}): success closes the circuit, failure opens it again
+ * with twice the cool-down, up to a maximum.
+ */
+public class TenantCircuitBreaker {
+
+	public static final int DEFAULT_THRESHOLD = 3;
+
+	public static final long DEFAULT_COOLDOWN = TimeUnit.SECONDS.toMillis(30);
+
+	public static final long DEFAULT_MAX_COOLDOWN = TimeUnit.MINUTES.toMillis(30);
+
+	public enum State {
+		/**
+		 * The tenant is polled normally
+		 */
+		CLOSED,
+		/**
+		 * The tenant is skipped until its cool-down has passed
+		 */
+		OPEN,
+		/**
+		 * The cool-down has passed and the tenant is being polled on trial
+		 */
+		HALF_OPEN
+	}
+
+	/**
+	 * The state of one tenant's circuit
+	 */
+	public static class Circuit {
+
+		private State state = State.CLOSED;
+
+		private int failures;
+
+		private int trips;
+
+		private long openUntil;
+
+		private Throwable lastFailure;
+
+		public synchronized State getState() {
+			return state;
+		}
+
+		/**
+		 * Get the number of consecutive failures
+		 */
+		public synchronized int getFailures() {
+			return failures;
+		}
+
+		/**
+		 * Get when the circuit may next be tried, in milliseconds since the epoch;
+		 * 0 if it is not open
+		 */
+		public synchronized long getOpenUntil() {
+			return state == State.OPEN ? openUntil : 0;
+		}
+
+		/**
+		 * Get the most recent failure, or null if the tenant is healthy
+		 */
+		public synchronized Throwable getLastFailure() {
+			return lastFailure;
+		}
+
+		@Override
+		public synchronized String toString() {
+			StringBuilder b = new StringBuilder().append(state).append(" failures=").append(failures);
+			if (state == State.OPEN) {
+				b.append(" retry in ").append(Math.max(0, openUntil - System.currentTimeMillis())).append("ms");
+			}
+			if (lastFailure != null) {
+				b.append(" last=").append(lastFailure);
+			}
+			return b.toString();
+		}
+	}
+
+	private int threshold = DEFAULT_THRESHOLD;
+
+	private long cooldown = DEFAULT_COOLDOWN;
+
+	private long maxCooldown = DEFAULT_MAX_COOLDOWN;
+
+	private ConcurrentMap<UUID, Circuit> circuits = new ConcurrentHashMap<>();
+
+	/**
+	 * Configure when circuits open and for how long
+	 *
+	 * @param threshold   The number of consecutive failures that opens a circuit
+	 * @param cooldown    How long a circuit stays open the first time
+	 * @param maxCooldown The longest a circuit stays open
+	 * @param unit        The unit of {@code cooldown} and {@code maxCooldown}
+	 */
+	public void configure(int threshold, long cooldown, long maxCooldown, TimeUnit unit) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Failure threshold must be at least 1");
+		}
+		this.threshold = threshold;
+		this.cooldown = unit.toMillis(cooldown);
+		this.maxCooldown = Math.max(this.cooldown, unit.toMillis(maxCooldown));
+	}
+
+	/**
+	 * Should a tenant be polled? A tenant whose cool-down has passed is moved to
+	 * {@link State#HALF_OPEN} and allowed through.
+	 *
+	 * @param tenant The tenant
+	 */
+	public boolean allow(KCTenant tenant) {
+		Circuit c = circuits.get(id(tenant));
+		if (c == null) {
+			return true;
+		}
+		synchronized (c) {
+			if (c.state == State.OPEN) {
+				if (System.currentTimeMillis() < c.openUntil) {
+					return false;
+				}
+				c.state = State.HALF_OPEN;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Record that a tenant was polled successfully, closing its circuit
+	 *
+	 * @param tenant The tenant
+	 */
+	public void success(KCTenant tenant) {
+		// Healthy tenants are not tracked
+		circuits.remove(id(tenant));
+	}
+
+	/**
+	 * Record that polling a tenant failed
+	 *
+	 * @param tenant The tenant
+	 * @param cause  The failure
+	 * @return How long in milliseconds the tenant will be skipped; 0 if its
+	 *         circuit is still closed
+	 */
+	public long failure(KCTenant tenant, Throwable cause) {
+		Circuit c = circuits.computeIfAbsent(id(tenant), id -> new Circuit());
+		synchronized (c) {
+			c.failures++;
+			c.lastFailure = cause;
+			if (c.state != State.HALF_OPEN && c.failures < threshold) {
+				return 0;
+			}
+			long delay = cooldown << Math.min(c.trips++, 30);
+			if (delay <= 0 || delay > maxCooldown) {
+				delay = maxCooldown;
+			}
+			c.state = State.OPEN;
+			c.openUntil = System.currentTimeMillis() + delay;
+			return delay;
+		}
+	}
+
+	/**
+	 * Get the state of a tenant's circuit
+	 *
+	 * @param tenant The tenant
+	 */
+	public State getState(KCTenant tenant) {
+		Circuit c = circuits.get(id(tenant));
+		return c == null ? State.CLOSED : c.getState();
+	}
+
+	/**
+	 * Get the circuit of every tenant that has failed since it was last polled
+	 * successfully
+	 */
+	public Map<UUID, Circuit> getCircuits() {
+		return new TreeMap<>(circuits);
+	}
+
+	/**
+	 * Close every circuit
+	 */
+	public void reset() {
+		circuits.clear();
+	}
+
+	private static UUID id(KCTenant tenant) {
+		return tenant.getTenantInfo().getId();
+	}
+}
@@ -1,8 +1,24 @@
 package kimono.client.tasks;
 
+import java.util.List;
+
 import kimono.client.KCSupplier;
 
 public interface KCTaskApi extends KCSupplier<KCTask> {
 
 	void ackTask( KCTask task, KCTaskAck ack );
+	
+	/**
+	 * Acknowledge several Tasks at once. Implementations may send the results 
+	 * in a single request where the server allows it; each Task is subject to 
+	 * the same rules as {@link #ackTask(KCTask, KCTaskAck)} (e.g. a Retry may 
+	 * leave the Task on the queue rather than acknowledge it). The default 
+	 * acknowledges each Task in turn.
+	 * @param results The Tasks and their acknowledgements, in the order received
+	 */
+	default void ackTasks( List<KCTaskResult> results ) {
+		for (KCTaskResult result : results) {
+			ackTask(result.getTask(), result.getAck());
+		}
+	}
 }
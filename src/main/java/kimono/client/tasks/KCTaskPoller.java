@@ -1,10 +1,12 @@
 package kimono.client.tasks;
 
+import java.io.File;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
 import kimono.client.KCTenant;
 import kimono.client.KCTenantSupplier;
+import kimono.client.KCTopic;
 
 /**
  * Interface of an Task poller.
@@ -44,6 +46,159 @@ public interface KCTaskPoller {
 	 * @param flag true to use the managed Tasks API, false to use the Tasks Admin API
 	 */
 	void setUseManagedTasksApi( boolean flag );
+	
+	/**
+	 * Set the number of tenants to poll concurrently. Tasks for any one tenant
+	 * are always handled in order by a single thread.
+	 * @param threads The number of worker threads; 1 polls tenants serially
+	 */
+	default void setConcurrency( int threads ) {
+	}
+	
+	/**
+	 * Poll each tenant on its own virtual thread when running on Java 21 or
+	 * later. On older JVMs tenants are polled as configured by
+	 * {@link #setConcurrency(int)}.
+	 * @param flag true to use virtual threads where supported
+	 */
+	default void setVirtualThreads( boolean flag ) {
+	}
+	
+	/**
+	 * Set the number of lanes to dispatch a tenant's Data Events on. Tasks for
+	 * the same object are always handled in order on the same lane.
+	 * @param lanes The number of lanes; 1 handles a tenant's Tasks serially
+	 */
+	default void setDispatchLanes( int lanes ) {
+	}
+	
+	/**
+	 * Set how Task acknowledgements are batched. A batch is sent when it is full,
+	 * when its oldest acknowledgement has waited {@code maxDelay}, and always
+	 * before the next page of Tasks is requested.
+	 * @param size The maximum number of acknowledgements per request
+	 * @param maxDelay The maximum time an acknowledgement waits to be sent
+	 * @param unit The unit of {@code maxDelay}
+	 */
+	default void setAckBatching( int size, long maxDelay, TimeUnit unit ) {
+	}
+	
+	/**
+	 * Send each batch of acknowledgements in a single request. Only enable this
+	 * where the server offers bulk acknowledgement.
+	 * @param flag true to acknowledge Tasks in bulk
+	 */
+	default void setBulkAck( boolean flag ) {
+	}
+	
+	/**
+	 * Send acknowledgements from a background sender so handling the next Task
+	 * does not wait for the previous acknowledgement to be sent. Acknowledgements
+	 * are still sent in order and always before the next page is requested.
+	 * @param depth The maximum number of queued acknowledgements per tenant; 0 
+	 * 	sends acknowledgements on the polling thread
+	 */
+	default void setAckQueueDepth( int depth ) {
+	}
+	
+	/**
+	 * Limit the number of pages of Tasks handled for each tenant in one polling
+	 * interval; a tenant that reaches the limit is resumed in the next interval
+	 * @param pages The maximum number of pages; 0 to drain each tenant completely
+	 */
+	default void setMaxPagesPerTenant( int pages ) {
+	}
+	
+	/**
+	 * Adapt the polling interval to queue activity. The interval passed to 
+	 * {@link #poll(int, TimeUnit)} becomes a ceiling: the next poll starts 
+	 * immediately while any tenant has Tasks waiting, after {@code minInterval}
+	 * if Tasks were handled, and backs off exponentially while idle.
+	 * @param minInterval The shortest interval between polls
+	 * @param unit The unit of {@code minInterval}
+	 */
+	default void setAdaptiveInterval( long minInterval, TimeUnit unit ) {
+	}
+	
+	/**
+	 * Filter out Tasks that are delivered more than once by remembering the IDs
+	 * of recently completed Tasks per tenant. A Task delivered again is given 
+	 * its previous acknowledgement without calling its handler.
+	 * @param capacity The number of Task IDs to remember per tenant; 0 to 
+	 * 	disable the filter
+	 * @param ttl How long to remember a Task ID; 0 until it is displaced
+	 * @param unit The unit of {@code ttl}
+	 */
+	default void setDedup( int capacity, long ttl, TimeUnit unit ) {
+	}
+	
+	/**
+	 * Restore the order of Tasks within each group by sequence number before 
+	 * they are handled, reporting gaps and duplicates in each sequence
+	 * @param flag true to reorder Tasks
+	 */
+	default void setReorder( boolean flag ) {
+	}
+	
+	/**
+	 * Fold consecutive Data Events for the same object on a page into one 
+	 * handler call with the final state of the object. Every original Task is
+	 * acknowledged with the result.
+	 * @param flag true to coalesce Data Events
+	 */
+	default void setCoalesce( boolean flag ) {
+	}
+	
+	/**
+	 * Use a durable local inbox: each page of Tasks is written to a journal in 
+	 * {@code folder} and acknowledged straight away, and the journaled Tasks are
+	 * handled in order on a separate thread, resuming from a checkpoint after a
+	 * restart.
+	 * @param folder The inbox folder, or null to handle each Task before it is 
+	 * 	acknowledged
+	 */
+	default void setInbox( File folder ) {
+	}
+	
+	/**
+	 * Limit how long a handler may take. A handler that misses its deadline is
+	 * interrupted and its Task acknowledged with the status set by 
+	 * {@link #setHandlerTimeoutStatus(KCTaskAck.Status)}.
+	 * @param type The Task type, or null for any type
+	 * @param topic The topic, or null for any topic
+	 * @param deadline The deadline; 0 for none
+	 * @param unit The unit of {@code deadline}
+	 */
+	default void setHandlerDeadline( KCTaskType type, KCTopic topic, long deadline, TimeUnit unit ) {
+	}
+	
+	/**
+	 * Set how a Task is acknowledged when its handler misses its deadline
+	 * @param status RETRY (the default) or ERROR
+	 */
+	default void setHandlerTimeoutStatus( KCTaskAck.Status status ) {
+	}
+	
+	/**
+	 * Configure the per-tenant circuit breaker. A tenant that fails to poll 
+	 * {@code threshold} times in a row is skipped for a cool-down that doubles
+	 * with each further failure, while other tenants are polled as usual.
+	 * @param threshold The number of consecutive failures that quarantines a tenant
+	 * @param cooldown The first cool-down
+	 * @param maxCooldown The longest cool-down
+	 * @param unit The unit of {@code cooldown} and {@code maxCooldown}
+	 */
+	default void setCircuitBreaker( int threshold, long cooldown, long maxCooldown, TimeUnit unit ) {
+	}
+	
+	/**
+	 * Get the interval the polling loop is currently using
+	 * @param unit The unit to return the interval in
+	 * @return The interval, or -1 if the poller does not report it
+	 */
+	default long getEffectiveInterval( TimeUnit unit ) {
+		return -1;
+	}
 
 	/**
 	 * Start the polling loop. Each iteration of the loop requests the next batch
@@ -0,0 +1,11 @@
+package kimono.client.tasks;
+
+/**
+ * A Task paired with the acknowledgement returned by its handler
+ */
+public interface KCTaskResult {
+
+	KCTask getTask();
+	
+	KCTaskAck getAck();
+}
@@ -0,0 +1,67 @@
+package kimono.client.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kimono.client.KimonoApiException;
+
+/**
+ * Thread and executor utilities
+ */
+public class ThreadUtils {
+
+	private ThreadUtils() {
+	}
+
+	/**
+	 * Create a {@link ThreadFactory} that produces daemon threads named
+	 * {@code prefix-1}, {@code prefix-2}, etc.
+	 *
+	 * @param prefix The thread name prefix
+	 */
+	public static ThreadFactory newThreadFactory(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Wait for a {@link Future} to complete and return its result. Unchecked
+	 * exceptions thrown by the computation are rethrown as-is; checked
+	 * exceptions are wrapped in a {@link KimonoApiException}.
+	 *
+	 * @param future The future
+	 * @return The result of the computation
+	 */
+	public static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new KimonoApiException(ie);
+		} catch (ExecutionException ee) {
+			throw rethrow(ee.getCause());
+		}
+	}
+
+	/**
+	 * Rethrow an exception raised on another thread
+	 *
+	 * @param cause The exception
+	 * @return Never returns; declared so callers can write {@code throw rethrow(ex)}
+	 */
+	public static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new KimonoApiException((Exception) cause);
+	}
+}
@@ -0,0 +1,33 @@
+package kimono.client.util;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. Virtual threads require Java 21; this version of
+ * the class is used on older JVMs and reports they are not supported. The Java
+ * 21 version is packaged in {@code META-INF/versions/21} of the multi-release
+ * jar.
+ */
+public class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Are virtual threads supported by this JVM?
+	 */
+	public static boolean isSupported() {
+		return false;
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for each task
+	 * 
+	 * @param prefix The thread name prefix
+	 * @throws UnsupportedOperationException if virtual threads are not supported
+	 * @see #isSupported()
+	 */
+	public static ExecutorService newExecutor(String prefix) {
+		throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+	}
+}
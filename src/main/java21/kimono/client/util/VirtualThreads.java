@@ -0,0 +1,30 @@
+package kimono.client.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads. This is the Java 21 version of the class,
+ * packaged in {@code META-INF/versions/21} of the multi-release jar.
+ */
+public class VirtualThreads {
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Are virtual threads supported by this JVM?
+	 */
+	public static boolean isSupported() {
+		return true;
+	}
+
+	/**
+	 * Create an executor that starts a new virtual thread for each task
+	 * 
+	 * @param prefix The thread name prefix
+	 */
+	public static ExecutorService newExecutor(String prefix) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix + "-", 1).factory());
+	}
+}
@@ -0,0 +1,129 @@
+package kimono.client.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kimono.client.KCTokenType;
+
+public class MappedFileTokenStoreTest {
+
+	private static final int SLOT_SIZE = 128;
+
+	private File file;
+
+	private MappedFileTokenStore store;
+
+	private final UUID a = UUID.randomUUID(), b = UUID.randomUUID(), c = UUID.randomUUID();
+
+	private final long later = System.currentTimeMillis() + 3600000;
+
+	@Before
+	public void setUp() throws IOException {
+		File folder = Files.createTempDirectory("tokens").toFile();
+		file = new File(folder, "tokens.dat");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		if (store != null) {
+			store.close();
+		}
+		file.delete();
+		file.getParentFile().delete();
+	}
+
+	private MappedFileTokenStore open(int slots) throws IOException {
+		if (store != null) {
+			store.close();
+		}
+		store = new MappedFileTokenStore(file, slots, SLOT_SIZE);
+		return store;
+	}
+
+	@Test
+	public void reopenRestoresTokens() throws IOException {
+		open(4).setToken(a, KCTokenType.BEARER, "token-a", later);
+		store.setToken(b, KCTokenType.BEARER, "token-b", later + 1);
+
+		open(4);
+		assertEquals("token-a", store.getToken(a, KCTokenType.BEARER));
+		assertEquals(later, store.getTokenExpiry(a, KCTokenType.BEARER));
+		assertEquals("token-b", store.getToken(b, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void reopenWithOtherSlotsDiscardsTokens() throws IOException {
+		open(4).setToken(a, KCTokenType.BEARER, "token-a", later);
+
+		open(8);
+		assertNull(store.getToken(a, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void reusesSlotOfTokenExpiringSoonestWhenFull() throws IOException {
+		open(2).setToken(a, KCTokenType.BEARER, "token-a", later + 1000);
+		store.setToken(b, KCTokenType.BEARER, "token-b", later);
+		store.setToken(c, KCTokenType.BEARER, "token-c", later + 2000);
+
+		assertNull(store.getToken(b, KCTokenType.BEARER));
+		open(2);
+		assertEquals("token-a", store.getToken(a, KCTokenType.BEARER));
+		assertNull(store.getToken(b, KCTokenType.BEARER));
+		assertEquals("token-c", store.getToken(c, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void clearedSlotIsReused() throws IOException {
+		open(1).setToken(a, KCTokenType.BEARER, "token-a", later);
+		store.clearToken(a, KCTokenType.BEARER);
+		store.setToken(b, KCTokenType.BEARER, "token-b", later);
+
+		open(1);
+		assertNull(store.getToken(a, KCTokenType.BEARER));
+		assertEquals("token-b", store.getToken(b, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void rejectsSlotFailingChecksum() throws IOException {
+		open(1).setToken(a, KCTokenType.BEARER, "token-a", later);
+		store.close();
+		store = null;
+
+		// Corrupt the last byte of the token in the only slot
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			long pos = 32 + 36 + "token-a".length() - 1;
+			raf.seek(pos);
+			raf.write('X');
+		}
+
+		open(1);
+		assertNull(store.getToken(a, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void ignoresExpiredTokensOnReopen() throws IOException {
+		open(2).setToken(a, KCTokenType.BEARER, "token-a", System.currentTimeMillis() - 1);
+
+		open(2);
+		assertNull(store.getToken(a, KCTokenType.BEARER));
+	}
+
+	@Test
+	public void createsFileReadableByOwnerOnly() throws IOException {
+		assumeTrue(file.toPath().getFileSystem().supportedFileAttributeViews().contains("posix"));
+		open(1);
+		assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file.toPath())));
+	}
+}
@@ -0,0 +1,120 @@
+package kimono.client.impl.csv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kimono.client.KCTopic;
+
+public class ChannelFileTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("channel", ".csv");
+		file.delete();
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	/**
+	 * A file that writes {@code row[0]} as each row
+	 */
+	private ChannelFile newFile(String[] row) {
+		return new ChannelFile(file, "group", KCTopic.parse("xStudents"), (task, attrs) -> row[0]);
+	}
+
+	private String read() throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void encodesRowsAcrossBufferBoundaries() throws IOException {
+		String[] row = new String[1];
+		ChannelFile f = newFile(row);
+		f.setBufferSize(1024);
+		f.setLineSeparator("\n");
+		f.open();
+
+		// Multi-byte characters that straddle the end of the buffer
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			row[0] = i + ",\u00e9l\u00e8ve \u20ac \ud83d\ude00";
+			f.write(null, null);
+			expected.append(row[0]).append("\n");
+		}
+		f.close();
+
+		assertEquals(expected.toString(), read());
+	}
+
+	@Test
+	public void flushesAfterMaxRows() throws IOException {
+		String[] row = { "row" };
+		ChannelFile f = newFile(row);
+		f.setFlushThresholds(2, 0, TimeUnit.MILLISECONDS);
+		f.open();
+
+		f.write(null, null);
+		assertEquals("", read());
+		f.write(null, null);
+		assertEquals("row\r\nrow\r\n", read());
+		f.close();
+	}
+
+	@Test
+	public void flushesIdleFileAfterMaxDelay() throws Exception {
+		String[] row = { "row" };
+		ChannelFile f = newFile(row);
+		f.setFlushThresholds(0, 50, TimeUnit.MILLISECONDS);
+		f.open();
+
+		f.write(null, null);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (file.length() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals("row\r\n", read());
+		f.close();
+	}
+
+	@Test
+	public void returnsDefaultSizeBufferToPool() throws IOException {
+		String[] row = { "row" };
+		ChannelFile f = newFile(row);
+		f.open();
+		f.close();
+		int pooled = ChannelFile.pooledBuffers();
+		assertTrue(pooled > 0);
+
+		ChannelFile other = newFile(row);
+		other.open();
+		assertEquals(pooled - 1, ChannelFile.pooledBuffers());
+		other.close();
+		assertEquals(pooled, ChannelFile.pooledBuffers());
+	}
+
+	@Test
+	public void doesNotPoolOtherBufferSizes() throws IOException {
+		String[] row = { "row" };
+		ChannelFile f = newFile(row);
+		int pooled = ChannelFile.pooledBuffers();
+		f.setBufferSize(4096);
+		f.open();
+		f.close();
+		assertEquals(pooled, ChannelFile.pooledBuffers());
+	}
+}
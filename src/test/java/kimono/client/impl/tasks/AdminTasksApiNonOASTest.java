@@ -0,0 +1,196 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import kimono.client.impl.Credentials;
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskResult;
+
+public class AdminTasksApiNonOASTest {
+
+	/**
+	 * Stands in for the Tasks Admin API, recording each request and answering
+	 * bulk acknowledgements with {@link #bulkStatus}
+	 */
+	private HttpServer server;
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+
+	private volatile int bulkStatus = 200;
+
+	private volatile String bulkBody;
+
+	@Before
+	public void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	@After
+	public void tearDown() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String body = read(exchange.getRequestBody());
+		requests.add(exchange.getRequestMethod() + " " + path);
+		int status = 200;
+		if (path.equals("/tasks/admin/ack")) {
+			bulkBody = body;
+			status = bulkStatus;
+		}
+		byte[] response = "{}".getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, response.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response);
+		}
+	}
+
+	private static String read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		for (int n; (n = in.read(buf)) > 0;) {
+			out.write(buf, 0, n);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Points the Tasks Admin API at the stand-in server
+	 */
+	class StandInTasksApi extends AdminTasksApiNonOAS {
+
+		StandInTasksApi() {
+			super(null);
+		}
+
+		private String base() {
+			return "http://127.0.0.1:" + server.getAddress().getPort() + "/tasks/admin";
+		}
+
+		@Override
+		protected Credentials getCredentials() {
+			return new Credentials(Credentials.Type.ACTOR, Credentials.Proto.BASIC, "client", "secret");
+		}
+
+		@Override
+		protected URL getTasksURL(Credentials cred) throws MalformedURLException {
+			return new URL(base());
+		}
+
+		@Override
+		protected URL getTaskAckURL(Credentials cred, UUID id) throws MalformedURLException {
+			return new URL(base() + "/" + id + "/ack");
+		}
+
+		@Override
+		protected URL getTasksAckURL(Credentials cred) throws MalformedURLException {
+			return new URL(base() + "/ack");
+		}
+	}
+
+	static KCTask task(UUID id) {
+		return (KCTask) Proxy.newProxyInstance(KCTask.class.getClassLoader(), new Class<?>[] { KCTask.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getId":
+						return id;
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return id.toString();
+					default:
+						return null;
+					}
+				});
+	}
+
+	private final UUID id1 = UUID.randomUUID(), id2 = UUID.randomUUID(), id3 = UUID.randomUUID();
+
+	private List<KCTaskResult> results() {
+		return Arrays.asList(new TaskResult(task(id1), TaskAck.success()),
+				new TaskResult(task(id2), TaskAck.retry("later")), new TaskResult(task(id3), TaskAck.success()));
+	}
+
+	private List<String> individually(UUID... ids) {
+		List<String> expected = new ArrayList<>();
+		for (UUID id : ids) {
+			expected.add("PUT /tasks/admin/" + id + "/ack");
+		}
+		return expected;
+	}
+
+	@Test
+	public void bulkAckIsOffByDefault() {
+		new StandInTasksApi().ackTasks(results());
+
+		// The Retry is left on the queue
+		assertEquals(individually(id1, id3), requests);
+	}
+
+	@Test
+	public void bulkAckSendsOneRequestInOrder() {
+		new StandInTasksApi().setBulkAck(true).ackTasks(results());
+
+		assertEquals(Collections.singletonList("PUT /tasks/admin/ack"), requests);
+		int first = bulkBody.indexOf(id1.toString());
+		int last = bulkBody.indexOf(id3.toString());
+		assertTrue(bulkBody, first >= 0 && last > first);
+		assertTrue(bulkBody, !bulkBody.contains(id2.toString()));
+	}
+
+	@Test
+	public void bulkAckFallsBackOnServerError() {
+		bulkStatus = 500;
+		new StandInTasksApi().setBulkAck(true).ackTasks(results());
+
+		List<String> expected = new ArrayList<>();
+		expected.add("PUT /tasks/admin/ack");
+		expected.addAll(individually(id1, id3));
+		assertEquals(expected, requests);
+	}
+
+	@Test
+	public void bulkAckFallsBackWhenUnsupported() {
+		bulkStatus = 404;
+		StandInTasksApi api = new StandInTasksApi();
+		api.setBulkAck(true);
+		api.ackTasks(results());
+		api.ackTasks(results());
+
+		// The server is not asked again once it has said it cannot
+		List<String> expected = new ArrayList<>();
+		expected.add("PUT /tasks/admin/ack");
+		expected.addAll(individually(id1, id3));
+		expected.addAll(individually(id1, id3));
+		assertEquals(expected, requests);
+	}
+}
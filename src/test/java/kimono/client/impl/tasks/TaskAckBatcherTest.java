@@ -0,0 +1,44 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import kimono.client.impl.tasks.TaskAckPipelineTest.SlowTaskApi;
+import kimono.client.tasks.KCTask;
+
+public class TaskAckBatcherTest {
+
+	@Test
+	public void sendsFullBatch() throws Exception {
+		SlowTaskApi api = new SlowTaskApi();
+		api.release.countDown();
+		TaskAckBatcher batcher = new TaskAckBatcher(api, 2, 1, TimeUnit.HOURS);
+		KCTask t1 = TaskAckPipelineTest.task(), t2 = TaskAckPipelineTest.task();
+
+		batcher.add(t1, TaskAck.success());
+		assertEquals(Collections.emptyList(), api.acked);
+		batcher.add(t2, TaskAck.success());
+		assertEquals(Arrays.asList(t1, t2), api.acked);
+	}
+
+	@Test
+	public void sendsBatchAfterMaxDelayWithoutAnotherAdd() throws Exception {
+		SlowTaskApi api = new SlowTaskApi();
+		api.release.countDown();
+		TaskAckBatcher batcher = new TaskAckBatcher(api, 10, 50, TimeUnit.MILLISECONDS);
+		KCTask t1 = TaskAckPipelineTest.task();
+
+		batcher.add(t1, TaskAck.success());
+		assertTrue("Batch was not sent", api.sending.await(5, TimeUnit.SECONDS));
+
+		// Waits for the timer to finish sending; there is nothing left to send
+		batcher.flush();
+		assertEquals(Collections.singletonList(t1), api.acked);
+	}
+}
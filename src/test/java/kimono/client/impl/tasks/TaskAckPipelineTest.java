@@ -0,0 +1,136 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAck;
+import kimono.client.tasks.KCTaskApi;
+import kimono.client.tasks.KCTaskResult;
+
+public class TaskAckPipelineTest {
+
+	/**
+	 * A Tasks API whose requests block until released
+	 */
+	static class SlowTaskApi implements KCTaskApi {
+
+		final List<KCTask> acked = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch sending = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+
+		@Override
+		public void reset() {
+		}
+
+		@Override
+		public boolean hasNext() {
+			return false;
+		}
+
+		@Override
+		public KCTask next() {
+			return null;
+		}
+
+		@Override
+		public List<KCTask> nextPage() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void ackTask(KCTask task, KCTaskAck ack) {
+			ackTasks(Collections.singletonList(new TaskResult(task, ack)));
+		}
+
+		@Override
+		public void ackTasks(List<KCTaskResult> results) {
+			sending.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			results.forEach(r -> acked.add(r.getTask()));
+		}
+	}
+
+	private ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	static KCTask task() {
+		return (KCTask) Proxy.newProxyInstance(KCTask.class.getClassLoader(), new Class<?>[] { KCTask.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return "task";
+					default:
+						return null;
+					}
+				});
+	}
+
+	@Test
+	public void addDoesNotWaitForSlowAck() throws Exception {
+		SlowTaskApi api = new SlowTaskApi();
+		TaskAckPipeline pipeline = new TaskAckPipeline(api, executor, 10, 2, 10, TimeUnit.SECONDS);
+		KCTask t1 = task(), t2 = task(), t3 = task();
+
+		pipeline.add(t1, TaskAck.success());
+		pipeline.add(t2, TaskAck.success());
+		assertTrue("Batch was not sent", api.sending.await(5, TimeUnit.SECONDS));
+
+		// The sender is blocked in ackTasks; adding must not wait for it
+		CompletableFuture<Void> add = CompletableFuture.runAsync(() -> pipeline.add(t3, TaskAck.success()));
+		add.get(2, TimeUnit.SECONDS);
+
+		api.release.countDown();
+		pipeline.flush();
+		assertEquals(Arrays.asList(t1, t2, t3), api.acked);
+	}
+
+	@Test
+	public void flushReportsErrorThatStoppedSender() throws Exception {
+		Error error = new Error("boom");
+		SlowTaskApi api = new SlowTaskApi() {
+			@Override
+			public void ackTasks(List<KCTaskResult> results) {
+				throw error;
+			}
+		};
+		TaskAckPipeline pipeline = new TaskAckPipeline(api, executor, 10, 2, 10, TimeUnit.SECONDS);
+		pipeline.add(task(), TaskAck.success());
+
+		try {
+			CompletableFuture.runAsync(pipeline::flush).get(5, TimeUnit.SECONDS);
+			fail("flush() did not fail");
+		} catch (ExecutionException ex) {
+			assertSame(error, ex.getCause());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import kimono.client.tasks.KCTask;
+
+public class TaskJournalTest {
+
+	private File folder;
+
+	private TaskJournal journal;
+
+	@Before
+	public void setUp() throws IOException {
+		folder = Files.createTempDirectory("journal").toFile();
+		journal = new TaskJournal(folder, TaskJournal.DEFAULT_SEGMENT_SIZE);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		journal.close();
+		for (File file : folder.listFiles()) {
+			file.delete();
+		}
+		folder.delete();
+	}
+
+	private static List<KCTask> tasks(String... ids) throws Exception {
+		StringBuilder page = new StringBuilder("{\"data\":[");
+		for (int i = 0; i < ids.length; i++) {
+			page.append(i > 0 ? "," : "").append(TaskPageDecoderTest.task(ids[i], "add", "initial"));
+		}
+		return TaskPageDecoderTest.decode(page.append("],\"paging\":{\"next\":null}}").toString());
+	}
+
+	/**
+	 * Flip a byte in the body of the last record of the only segment
+	 */
+	private void corruptLastByte() throws IOException {
+		File segment = folder.listFiles((dir, name) -> name.endsWith(".log"))[0];
+		try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+			raf.seek(raf.length() - 2);
+			int b = raf.read();
+			raf.seek(raf.length() - 2);
+			raf.write(b ^ 0xff);
+		}
+	}
+
+	@Test
+	public void corruptTrailingRecordIsCheckpointedPast() throws Exception {
+		journal.append(tasks("00000000-0000-0000-0000-000000000001", "00000000-0000-0000-0000-000000000002"));
+		corruptLastByte();
+
+		List<TaskJournal.Entry> entries = journal.read(10);
+		assertEquals(2, entries.size());
+		assertEquals("00000000-0000-0000-0000-000000000001", entries.get(0).getTask().getId().toString());
+		assertNull(entries.get(1).getTask());
+
+		journal.checkpoint(entries.get(1));
+		assertFalse(journal.isPending());
+		assertTrue(journal.read(10).isEmpty());
+	}
+
+	@Test
+	public void tasksAfterCorruptRecordAreRead() throws Exception {
+		journal.append(tasks("00000000-0000-0000-0000-000000000001", "00000000-0000-0000-0000-000000000002"));
+		corruptLastByte();
+		journal.append(tasks("00000000-0000-0000-0000-000000000003"));
+
+		List<TaskJournal.Entry> entries = journal.read(10);
+		assertEquals(3, entries.size());
+		assertNull(entries.get(1).getTask());
+		assertEquals("00000000-0000-0000-0000-000000000003", entries.get(2).getTask().getId().toString());
+
+		journal.checkpoint(entries.get(2));
+		assertFalse(journal.isPending());
+	}
+}
@@ -0,0 +1,48 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import kimono.client.tasks.KCTask;
+import kimono.client.tasks.KCTaskAction;
+
+public class TaskPageDecoderTest {
+
+	static List<KCTask> decode(String json) throws Exception {
+		List<KCTask> tasks = new ArrayList<>();
+		assertFalse(TaskPageDecoder.decode(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), tasks::add));
+		return tasks;
+	}
+
+	static String task(String id, String action, String origin) {
+		return "{\"schema\":\"3.0.0\",\"type\":\"data_event\",\"id\":\"" + id
+				+ "\",\"object_type\":\"xStudent\",\"action\":\"" + action + "\",\"origin\":\"" + origin
+				+ "\",\"data\":{}}";
+	}
+
+	@Test
+	public void unknownActionDoesNotFailPage() throws Exception {
+		String page = "{\"data\":[" //
+				+ task("00000000-0000-0000-0000-000000000001", "add", "initial") + "," //
+				+ task("00000000-0000-0000-0000-000000000002", "frobnicate", "frobnicate") + "," //
+				+ task("00000000-0000-0000-0000-000000000003", "delete", "resend") //
+				+ "],\"paging\":{\"next\":null}}";
+
+		List<KCTask> tasks = decode(page);
+
+		assertEquals(3, tasks.size());
+		assertEquals(KCTaskAction.ADD, tasks.get(0).getAction());
+		assertEquals(KCTaskAction.NOT_APPLICABLE, tasks.get(1).getAction());
+		assertNull(tasks.get(1).getOrigin());
+		assertEquals("00000000-0000-0000-0000-000000000002", tasks.get(1).getId().toString());
+		assertEquals(KCTaskAction.DELETE, tasks.get(2).getAction());
+	}
+}
@@ -0,0 +1,79 @@
+package kimono.client.impl.tasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import kimono.client.tasks.KCTask;
+
+public class TaskReorderBufferTest {
+
+	static KCTask task(String groupId, long sequence) {
+		return (KCTask) Proxy.newProxyInstance(KCTask.class.getClassLoader(), new Class<?>[] { KCTask.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getGroupId":
+						return groupId;
+					case "getSequence":
+						return sequence;
+					case "equals":
+						return proxy == args[0];
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "toString":
+						return groupId + "#" + sequence;
+					default:
+						return null;
+					}
+				});
+	}
+
+	@Test
+	public void flushReleasesGroupsInOrderFirstSeen() {
+		TaskReorderBuffer buffer = new TaskReorderBuffer(null);
+		List<KCTask> offered = new ArrayList<>();
+		for (int i = 50; i > 0; i--) {
+			// Nothing has been released for these groups, so each Task is held
+			KCTask task = task("group-" + i, 7);
+			offered.add(task);
+			buffer.offer(task, t -> {
+				throw new AssertionError("Released early: " + t);
+			});
+		}
+
+		List<KCTask> released = new ArrayList<>();
+		buffer.flush(released::add);
+		assertEquals(offered, released);
+	}
+
+	@Test
+	public void evictsIdleGroups() {
+		TaskReorderBuffer buffer = new TaskReorderBuffer(null, 0);
+		List<KCTask> released = new ArrayList<>();
+		buffer.offer(task("group", 1), released::add);
+		assertFalse("A group holding Tasks was evicted", buffer.evictIdle());
+
+		buffer.flush(released::add);
+		assertTrue(buffer.evictIdle());
+	}
+
+	@Test
+	public void keepsRecentGroups() {
+		TaskReorderBuffer buffer = new TaskReorderBuffer(null);
+		List<KCTask> released = new ArrayList<>();
+		buffer.offer(task("group", 1), released::add);
+		buffer.flush(released::add);
+		assertFalse(buffer.evictIdle());
+
+		// The group's sequence is remembered, so the next Task follows on at once
+		buffer.offer(task("group", 2), released::add);
+		assertEquals(2, released.size());
+		assertEquals(0, buffer.size());
+	}
+}